@@ -17,4 +17,8 @@ dependencies {
 
 tasks.test {
     useJUnitPlatform()
+    // e.g. gradle test -Ddifferential.inputs=1000000 -Ddifferential.threads=16
+    systemProperties(System.getProperties()
+        .filterKeys { it.toString().startsWith("differential.") }
+        .mapKeys { it.key.toString() })
 }
\ No newline at end of file
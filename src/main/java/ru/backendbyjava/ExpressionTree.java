@@ -0,0 +1,244 @@
+package ru.backendbyjava;
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+import ru.backendbyjava.ParsingArtificialLanguage.IncorrectExpressionException;
+import ru.backendbyjava.ParsingArtificialLanguage.Operation;
+import ru.backendbyjava.ParsingArtificialLanguage.TokenData;
+import ru.backendbyjava.ParsingArtificialLanguage.TokenType;
+
+/**
+ * Canonical tree of a validated expression. AND binds tighter than OR, as in the translated SQL.
+ * Nested junctions of the same kind are flattened and their children are sorted and deduplicated,
+ * so equal sub-predicates written in a different order share one canonical key.
+ */
+public class ExpressionTree {
+    private static final String AND = "AND";
+    private static final String OR = "OR";
+
+    private final Node root;
+
+    private ExpressionTree(Node root) {
+        this.root = root;
+    }
+
+    public static ExpressionTree parse(String expression) {
+        return parse(new ParsingArtificialLanguage(), expression);
+    }
+
+    static ExpressionTree parse(ParsingArtificialLanguage parser, String expression) {
+        return parse(parser, expression, UnaryOperator.identity());
+    }
+
+    /**
+     * @param literalInterner applied to the strings the tree retains: the literal and the string value of every
+     *                        comparison and the canonical key of every node
+     */
+    static ExpressionTree parse(ParsingArtificialLanguage parser, String expression,
+                                UnaryOperator<String> literalInterner) {
+        if (expression == null || expression.isEmpty()) {
+            return new ExpressionTree(Junction.of(LogicalOperator.AND, List.of()));
+        }
+        parser.checkExpression(expression);
+        return new ExpressionTree(new TreeBuilder(parser.getTokenDataList(), literalInterner).build());
+    }
+
+    public Node getRoot() {
+        return root;
+    }
+
+    public abstract static class Node {
+        private final String canonicalKey;
+
+        private Node(String canonicalKey) {
+            this.canonicalKey = canonicalKey;
+        }
+
+        public String getCanonicalKey() {
+            return canonicalKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Node && canonicalKey.equals(((Node) o).canonicalKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return canonicalKey.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return canonicalKey;
+        }
+    }
+
+    public static class Comparison extends Node {
+        private final String field;
+        private final Operation operation;
+        private final Object value;
+        private final String literal;
+
+        private Comparison(String field, Operation operation, Object value, String literal,
+                           UnaryOperator<String> keyInterner) {
+            super(keyInterner.apply(field + " " + operation.getSymbolicValue() + " " + canonicalValue(value)));
+            this.field = field;
+            this.operation = operation;
+            this.value = value;
+            this.literal = literal;
+        }
+
+        /**
+         * Quotes inside a string value are doubled, so a value can not end early and take the text after it
+         * for other comparisons of the key.
+         */
+        private static String canonicalValue(Object value) {
+            return value instanceof String ? "'" + ((String) value).replace("'", "''") + "'" : value.toString();
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public Operation getOperation() {
+            return operation;
+        }
+
+        /**
+         * Typed value: {@link Integer}, {@link String} without quotes or {@link java.time.LocalDateTime}.
+         */
+        public Object getValue() {
+            return value;
+        }
+
+        /**
+         * Value as it was written in the expression.
+         */
+        public String getLiteral() {
+            return literal;
+        }
+    }
+
+    public static class Junction extends Node {
+        private final LogicalOperator operator;
+        private final List<Node> children;
+
+        private Junction(LogicalOperator operator, List<Node> children, String canonicalKey) {
+            super(canonicalKey);
+            this.operator = operator;
+            this.children = children;
+        }
+
+        static Node of(LogicalOperator operator, List<Node> children) {
+            return of(operator, children, UnaryOperator.identity());
+        }
+
+        static Node of(LogicalOperator operator, List<Node> children, UnaryOperator<String> keyInterner) {
+            SortedMap<String, Node> uniqueChildren = new TreeMap<>();
+            for (Node child : children) {
+                if (child instanceof Junction && ((Junction) child).operator == operator) {
+                    for (Node grandChild : ((Junction) child).children) {
+                        uniqueChildren.put(grandChild.getCanonicalKey(), grandChild);
+                    }
+                } else {
+                    uniqueChildren.put(child.getCanonicalKey(), child);
+                }
+            }
+            if (uniqueChildren.size() == 1) {
+                return uniqueChildren.values().iterator().next();
+            }
+            StringJoiner key = new StringJoiner(", ", operator.name() + "(", ")");
+            uniqueChildren.keySet().forEach(key::add);
+            return new Junction(operator, List.copyOf(uniqueChildren.values()), keyInterner.apply(key.toString()));
+        }
+
+        public LogicalOperator getOperator() {
+            return operator;
+        }
+
+        public List<Node> getChildren() {
+            return children;
+        }
+    }
+
+    public enum LogicalOperator {
+        AND,
+        OR
+    }
+
+    private static class TreeBuilder {
+        private final List<TokenData> tokens;
+        private final UnaryOperator<String> literalInterner;
+        private int position;
+
+        private TreeBuilder(List<TokenData> tokens, UnaryOperator<String> literalInterner) {
+            this.tokens = tokens;
+            this.literalInterner = literalInterner;
+        }
+
+        private Node build() {
+            Node node = parseDisjunction();
+            if (position != tokens.size()) {
+                throw new IncorrectExpressionException("Incorrect expression");
+            }
+            return node;
+        }
+
+        private Node parseDisjunction() {
+            List<Node> children = new ArrayList<>();
+            children.add(parseConjunction());
+            while (nextIsLogicalOperator(OR)) {
+                position++;
+                children.add(parseConjunction());
+            }
+            return children.size() == 1 ? children.get(0) : Junction.of(LogicalOperator.OR, children, literalInterner);
+        }
+
+        private Node parseConjunction() {
+            List<Node> children = new ArrayList<>();
+            children.add(parsePrimary());
+            while (nextIsLogicalOperator(AND)) {
+                position++;
+                children.add(parsePrimary());
+            }
+            return children.size() == 1 ? children.get(0) : Junction.of(LogicalOperator.AND, children, literalInterner);
+        }
+
+        private Node parsePrimary() {
+            TokenData token = next();
+            if (token.getTokenType() == TokenType.OPEN_BRACKET) {
+                Node node = parseDisjunction();
+                if (next().getTokenType() != TokenType.CLOSE_BRACKET) {
+                    throw new IncorrectExpressionException("Incorrect expression");
+                }
+                return node;
+            }
+            if (token.getTokenType() != TokenType.FIELD) {
+                throw new IncorrectExpressionException("Incorrect expression");
+            }
+            String field = token.getToken();
+            Operation operation = Operation.findBySymbolicValue(next().getToken());
+            String literal = literalInterner.apply(next().getToken());
+            Object value = ParsingArtificialLanguage.parseFieldValue(field, literal);
+            if (value instanceof String) {
+                value = literalInterner.apply((String) value);
+            }
+            return new Comparison(field, operation, value, literal, literalInterner);
+        }
+
+        private boolean nextIsLogicalOperator(String operator) {
+            return position < tokens.size()
+                    && tokens.get(position).getTokenType() == TokenType.LOGICAL_OPERATOR
+                    && tokens.get(position).getToken().equals(operator);
+        }
+
+        private TokenData next() {
+            if (position >= tokens.size()) {
+                throw new IncorrectExpressionException("Incorrect expression");
+            }
+            return tokens.get(position++);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package ru.backendbyjava;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ru.backendbyjava.ExpressionTree.Comparison;
+import ru.backendbyjava.ExpressionTree.Junction;
+import ru.backendbyjava.ExpressionTree.LogicalOperator;
+import ru.backendbyjava.ExpressionTree.Node;
+import ru.backendbyjava.ParsingArtificialLanguage.Operation;
+
+/**
+ * Evaluates batches of filters against an in-memory snapshot. Every comparison and AND/OR subtree is
+ * evaluated once per snapshot version and its row bitmap is reused by all filters containing it while it stays
+ * in the memory-bounded cache, so the work grows with the number of distinct sub-predicates rather than
+ * with the number of filters.
+ */
+public class FilterBatchEvaluator {
+    private static final long DEFAULT_MAX_CACHED_BYTES = 64L * 1024 * 1024;
+    private static final long ENTRY_OVERHEAD_BYTES = 96;
+
+    private final SubexpressionResultCache cache;
+    private final AtomicLong evaluatedNodeCount = new AtomicLong();
+
+    public FilterBatchEvaluator() {
+        this(DEFAULT_MAX_CACHED_BYTES);
+    }
+
+    public FilterBatchEvaluator(long maxCachedBytes) {
+        this.cache = new SubexpressionResultCache(maxCachedBytes);
+    }
+
+    public Map<String, BitSet> evaluateBatch(Snapshot snapshot, Collection<String> filters) {
+        Map<String, BitSet> filterResults = new LinkedHashMap<>();
+        for (String filter : filters) {
+            if (!filterResults.containsKey(filter)) {
+                Node root = ExpressionTree.parse(filter).getRoot();
+                filterResults.put(filter, (BitSet) evaluate(snapshot, root).clone());
+            }
+        }
+        return filterResults;
+    }
+
+    public BitSet evaluate(Snapshot snapshot, String filter) {
+        return evaluateBatch(snapshot, List.of(filter)).get(filter);
+    }
+
+    /**
+     * Number of comparisons and junctions actually computed over the snapshot rows, i.e. cache misses.
+     */
+    public long getEvaluatedNodeCount() {
+        return evaluatedNodeCount.get();
+    }
+
+    public long getCachedBytes() {
+        return cache.getCachedBytes();
+    }
+
+    /**
+     * Sub-results are shared only through the cache, so a batch never holds more intermediate bitmaps
+     * than the cache budget allows.
+     */
+    private BitSet evaluate(Snapshot snapshot, Node node) {
+        String key = node.getCanonicalKey();
+        BitSet result = cache.get(snapshot.getVersion(), key);
+        if (result == null) {
+            result = node instanceof Comparison
+                    ? evaluateComparison(snapshot, (Comparison) node)
+                    : evaluateJunction(snapshot, (Junction) node);
+            evaluatedNodeCount.incrementAndGet();
+            cache.put(snapshot.getVersion(), key, result);
+        }
+        return result;
+    }
+
+    private BitSet evaluateJunction(Snapshot snapshot, Junction junction) {
+        List<Node> children = junction.getChildren();
+        if (children.isEmpty()) {
+            BitSet result = new BitSet(snapshot.size());
+            if (junction.getOperator() == LogicalOperator.AND) {
+                result.set(0, snapshot.size());
+            }
+            return result;
+        }
+        BitSet result = (BitSet) evaluate(snapshot, children.get(0)).clone();
+        for (int i = 1; i < children.size(); i++) {
+            BitSet childResult = evaluate(snapshot, children.get(i));
+            if (junction.getOperator() == LogicalOperator.AND) {
+                result.and(childResult);
+            } else {
+                result.or(childResult);
+            }
+        }
+        return result;
+    }
+
+    private BitSet evaluateComparison(Snapshot snapshot, Comparison comparison) {
+        BitSet result = new BitSet(snapshot.size());
+        for (int row = 0; row < snapshot.size(); row++) {
+            Object rowValue = snapshot.getRows().get(row).get(comparison.getField());
+            if (rowValue != null && matches(rowValue, comparison.getOperation(), comparison.getValue())) {
+                result.set(row);
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static boolean matches(Object rowValue, Operation operation, Object value) {
+        if (operation == Operation.LIKE) {
+            return matchesLikePattern(rowValue.toString(), value.toString());
+        }
+        int comparisonResult = ((Comparable) rowValue).compareTo(value);
+        switch (operation) {
+            case GREATER:
+                return comparisonResult > 0;
+            case LESS:
+                return comparisonResult < 0;
+            case EQUAL:
+                return comparisonResult == 0;
+            case GREATER_OR_EQUAL:
+                return comparisonResult >= 0;
+            case LESS_OR_EQUAL:
+                return comparisonResult <= 0;
+            default:
+                return false;
+        }
+    }
+
+    static boolean matchesLikePattern(String value, String pattern) {
+        int valueIndex = 0;
+        int patternIndex = 0;
+        int wildcardPatternIndex = -1;
+        int wildcardValueIndex = 0;
+        while (valueIndex < value.length()) {
+            if (patternIndex < pattern.length()
+                    && (pattern.charAt(patternIndex) == '_' || pattern.charAt(patternIndex) == value.charAt(valueIndex))) {
+                valueIndex++;
+                patternIndex++;
+            } else if (patternIndex < pattern.length() && pattern.charAt(patternIndex) == '%') {
+                wildcardPatternIndex = patternIndex++;
+                wildcardValueIndex = valueIndex;
+            } else if (wildcardPatternIndex != -1) {
+                patternIndex = wildcardPatternIndex + 1;
+                valueIndex = ++wildcardValueIndex;
+            } else {
+                return false;
+            }
+        }
+        while (patternIndex < pattern.length() && pattern.charAt(patternIndex) == '%') {
+            patternIndex++;
+        }
+        return patternIndex == pattern.length();
+    }
+
+    /**
+     * Immutable set of rows keyed by pseudo field names. A new version must be used whenever the rows change.
+     */
+    public static class Snapshot {
+        private final long version;
+        private final List<Map<String, Object>> rows;
+
+        public Snapshot(long version, List<Map<String, Object>> rows) {
+            this.version = version;
+            this.rows = List.copyOf(rows);
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public List<Map<String, Object>> getRows() {
+            return rows;
+        }
+
+        public int size() {
+            return rows.size();
+        }
+    }
+
+    private static class SubexpressionResultCache {
+        private final long maxCachedBytes;
+        private final LinkedHashMap<String, BitSet> results = new LinkedHashMap<>(16, 0.75f, true);
+        private long snapshotVersion = Long.MIN_VALUE;
+        private long cachedBytes;
+
+        private SubexpressionResultCache(long maxCachedBytes) {
+            this.maxCachedBytes = maxCachedBytes;
+        }
+
+        private synchronized BitSet get(long version, String key) {
+            return version == snapshotVersion ? results.get(key) : null;
+        }
+
+        /**
+         * Results of an older snapshot are not cached, so a late batch can not evict the current snapshot.
+         */
+        private synchronized void put(long version, String key, BitSet result) {
+            if (version < snapshotVersion) {
+                return;
+            }
+            if (version > snapshotVersion) {
+                results.clear();
+                cachedBytes = 0;
+                snapshotVersion = version;
+            }
+            long entryBytes = estimateBytes(key, result);
+            if (entryBytes > maxCachedBytes || results.containsKey(key)) {
+                return;
+            }
+            results.put(key, result);
+            cachedBytes += entryBytes;
+            Iterator<Map.Entry<String, BitSet>> iterator = results.entrySet().iterator();
+            while (cachedBytes > maxCachedBytes && iterator.hasNext()) {
+                Map.Entry<String, BitSet> eldest = iterator.next();
+                cachedBytes -= estimateBytes(eldest.getKey(), eldest.getValue());
+                iterator.remove();
+            }
+        }
+
+        private synchronized long getCachedBytes() {
+            return cachedBytes;
+        }
+
+        private static long estimateBytes(String key, BitSet result) {
+            return ENTRY_OVERHEAD_BYTES + 2L * key.length() + result.size() / Byte.SIZE;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ru.backendbyjava;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Bounded pool of literal strings shared by parsers of different tenants. Entries are weakly referenced,
+ * so a literal is dropped as soon as no parsed expression uses it. Once the pool is full, or when the literal
+ * is longer than the limit, the literal is returned as is instead of being pooled.
+ * The pool is split into stripes by hash with a lock per stripe, so tenants parsing concurrently rarely
+ * wait for each other.
+ */
+public class LiteralPool {
+    public static final int DEFAULT_MAX_ENTRIES = 65_536;
+    public static final int DEFAULT_MAX_LITERAL_LENGTH = 64;
+
+    private static final int MAX_STRIPE_COUNT = 16;
+
+    private final int maxEntriesPerStripe;
+    private final int maxLiteralLength;
+    private final Map<String, WeakReference<String>>[] stripes;
+
+    public LiteralPool() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_LITERAL_LENGTH);
+    }
+
+    @SuppressWarnings("unchecked")
+    public LiteralPool(int maxEntries, int maxLiteralLength) {
+        if (maxEntries < 1 || maxLiteralLength < 1) {
+            throw new IllegalArgumentException("Literal pool limits must be positive");
+        }
+        int stripeCount = Math.min(MAX_STRIPE_COUNT, maxEntries);
+        this.maxEntriesPerStripe = maxEntries / stripeCount;
+        this.maxLiteralLength = maxLiteralLength;
+        this.stripes = new Map[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new WeakHashMap<>();
+        }
+    }
+
+    public String intern(String literal) {
+        if (literal == null || literal.length() > maxLiteralLength) {
+            return literal;
+        }
+        Map<String, WeakReference<String>> stripe = stripes[Math.floorMod(literal.hashCode(), stripes.length)];
+        synchronized (stripe) {
+            WeakReference<String> reference = stripe.get(literal);
+            String pooledLiteral = reference == null ? null : reference.get();
+            if (pooledLiteral != null) {
+                return pooledLiteral;
+            }
+            if (stripe.size() < maxEntriesPerStripe) {
+                stripe.put(literal, new WeakReference<>(literal));
+            }
+            return literal;
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Map<String, WeakReference<String>> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+}
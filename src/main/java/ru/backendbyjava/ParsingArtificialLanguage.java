@@ -1,5 +1,8 @@
 package ru.backendbyjava;
 
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -10,8 +13,6 @@ import java.util.function.Function;
 import static ru.backendbyjava.ParsingArtificialLanguage.Operation.*;
 
 public class ParsingArtificialLanguage {
-    private static final Set<Operation> ALLOWED_OPERATIONS = Set.of(GREATER, LESS, EQUAL, GREATER_OR_EQUAL,
-            LESS_OR_EQUAL, LIKE);
     private static final Map<Class<?>, Set<Operation>> ALLOWED_OPERATION_MAP = Map.of(
             Integer.class, Set.of(GREATER, LESS, EQUAL, GREATER_OR_EQUAL, LESS_OR_EQUAL),
             Date.class, Set.of(GREATER, LESS, EQUAL, GREATER_OR_EQUAL, LESS_OR_EQUAL),
@@ -31,6 +32,12 @@ public class ParsingArtificialLanguage {
             Date.class, ParsingArtificialLanguage::checkDate
     );
 
+    private static final Map<Class<?>, Function<String, Object>> FIELD_TYPE_PARSERS_MAP = Map.of(
+            Integer.class, Integer::valueOf,
+            String.class, ParsingArtificialLanguage::parseString,
+            Date.class, ParsingArtificialLanguage::parseDate
+    );
+
     private static final Map<Class<?>, Function<String, String>> FIELD_TYPE_TRANSLATORS_MAP = Map.of(
             Date.class, ParsingArtificialLanguage::translateDateToSqlFormat
     );
@@ -42,8 +49,14 @@ public class ParsingArtificialLanguage {
             "POSTDATE", "ARTICLE_POST_DATE"
     );
 
+    private static final Map<String, Double> FIELD_SELECTIVITY_MAP = Map.of(
+            "TITLE", 0.05,
+            "NAME", 0.01,
+            "WEIGHT", 0.5,
+            "POSTDATE", 0.2
+    );
+
     private static final Set<String> LOGICAL_OPERATIONS = Set.of("OR", "AND");
-    private static final Set<Character> TECHNICAL_TOKENS = Set.of('>', '<', '=', '(', ')');
     private static final Set<String> TYPES_OF_CONDENSED_EXPRESSION = Set.of("FIELD OPERATION VALUE",
             "CONDENSED_EXPRESSION LOGOPER FIELD OPERATION VALUE", "CONDENSED_EXPRESSION LOGOPER CONDENSED_EXPRESSION");
 
@@ -62,62 +75,186 @@ public class ParsingArtificialLanguage {
     private static final String CLOSE_BRACKET = ")";
     private static final String DATE_PATTERN = "dd.MM.yyyy HH:mm";
     private static final String SQL_DATE_PATTERN = "yyyy-MM-dd HH:mm:ss";
-    private static final String VALUE_WITH_QUOTE_TOKEN_SEPARATOR = "' ";
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(DATE_PATTERN);
+    private static final DateTimeFormatter SQL_DATE_FORMATTER = DateTimeFormatter.ofPattern(SQL_DATE_PATTERN);
+    private static final int MAX_RETAINED_SCRATCH_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> SQL_SCRATCH_BUFFER = ThreadLocal.withInitial(StringBuilder::new);
+    private static final Map<TokenType, String> TOKEN_TYPE_SYMBOL_MAP = Map.of(
+            TokenType.FIELD, FIELD,
+            TokenType.OPERATION, OPERATION,
+            TokenType.LOGICAL_OPERATOR, LOGICAL_OPERATION,
+            TokenType.VALUE, VALUE
+    );
+
+    private static final int EMPTY_STATE = 0;
+    private static final int CONDENSED_STATE = 1;
+    private static final int REJECTED_STATE = -1;
+    private static final int NOT_FOUND = -1;
+    private static final List<String> GRAMMAR_STATES = buildGrammarStates();
+    private static final int[][] GRAMMAR_TRANSITIONS = buildGrammarTransitions();
+    private static final boolean[] OPEN_BRACKET_ALLOWED = new boolean[GRAMMAR_STATES.size()];
+    private static final int CLOSE_BRACKET_STATE = buildBracketTransitions();
+    private static final String[] FIELD_NAME_TABLE = FIELD_NAMES.toArray(new String[0]);
+    private static final Class<?>[] FIELD_TYPE_TABLE = Arrays.stream(FIELD_NAME_TABLE).map(FIELD_TYPE_MAP::get)
+            .toArray(Class<?>[]::new);
+    private static final boolean[][] ALLOWED_OPERATION_TABLE = buildAllowedOperationTable();
+    private static final String[] LOGICAL_OPERATION_TABLE = LOGICAL_OPERATIONS.toArray(new String[0]);
 
     private String currentField = EMPTY_STRING;
     private Operation currentOperation = EMPTY_OPERATION;
     private String currentValue = EMPTY_STRING;
+    private final ParsingLimits limits;
     private List<TokenData> tokenDataList = new ArrayList<>();
+    private int readTokenCount;
+
+    public ParsingArtificialLanguage() {
+        this(ParsingLimits.DEFAULT);
+    }
+
+    public ParsingArtificialLanguage(ParsingLimits limits) {
+        this.limits = limits;
+    }
 
     public String translateExpression(String expression) {
-        String resultExpression = expression;
-        if (checkExpression(expression)) {
-            for (Map.Entry<String, String> entry : PSEUDO_FIELD_SQL_MAP.entrySet()) {
-                resultExpression = resultExpression.replace(entry.getKey(), entry.getValue());
+        if (expression == null || expression.isEmpty()) {
+            return expression;
+        }
+        StringBuilder sql = SQL_SCRATCH_BUFFER.get();
+        try {
+            translateExpression(expression, sql);
+            return sql.toString();
+        } finally {
+            sql.setLength(0);
+            if (sql.capacity() > MAX_RETAINED_SCRATCH_CAPACITY) {
+                SQL_SCRATCH_BUFFER.remove();
             }
         }
-        resultExpression = translateFieldValues(resultExpression);
-        return resultExpression;
     }
 
-    private String translateFieldValues(String expression) {
-        for (Map.Entry<Class<?>, Function<String, String>> entry : FIELD_TYPE_TRANSLATORS_MAP.entrySet()) {
+    /**
+     * Writes the translated expression to {@code out} in one forward pass: field and value tokens are replaced
+     * by their SQL form using the token offsets collected during validation, everything between them is copied
+     * as is. No intermediate copy of the whole expression is made.
+     */
+    public void translateExpression(String expression, Appendable out) {
+        if (expression == null || expression.isEmpty()) {
+            return;
+        }
+        checkExpression(expression);
+        try {
+            int position = 0;
             for (int i = 0; i < tokenDataList.size(); i++) {
-                TokenData item = tokenDataList.get(i);
-                if (item.tokenType.equals(TokenType.FIELD)) {
-                    Class<?> fieldDataType = FIELD_TYPE_MAP.get(item.token);
-                    if (entry.getKey().equals(fieldDataType)) {
-                        TokenData tokenDataValue = tokenDataList.get(i + 2);
-                        String translatedValue = entry.getValue().apply(tokenDataValue.token);
-                        expression = expression.replace(tokenDataValue.token, translatedValue);
-                    }
+                TokenData tokenData = tokenDataList.get(i);
+                String translatedToken = translateToken(i);
+                if (translatedToken != null) {
+                    out.append(expression, position, tokenData.start).append(translatedToken);
+                    position = tokenData.end;
                 }
             }
+            out.append(expression, position, expression.length());
+        } catch (IOException e) {
+            throw new TranslationToSqlException("Error during writing translated expression", e);
+        }
+    }
+
+    /**
+     * Writes the translated expression to {@code out} as UTF-8 bytes starting at its current position.
+     * When the buffer has not enough room, its position is restored and {@link BufferOverflowException} is thrown.
+     */
+    public void translateExpression(String expression, ByteBuffer out) {
+        int startPosition = out.position();
+        try {
+            Utf8ByteBufferAppender appender = new Utf8ByteBufferAppender(out);
+            translateExpression(expression, appender);
+            appender.finish();
+        } catch (BufferOverflowException e) {
+            out.position(startPosition);
+            throw e;
+        }
+    }
+
+    public String translateExpression(String expression, SqlGenerationStrategy strategy) {
+        return strategy.generate(ExpressionTree.parse(this, expression));
+    }
+
+    static String translateComparison(String field, Operation operation, String value) {
+        Function<String, String> valueTranslator = FIELD_TYPE_TRANSLATORS_MAP.get(FIELD_TYPE_MAP.get(field));
+        String translatedValue = valueTranslator == null ? value : valueTranslator.apply(value);
+        return PSEUDO_FIELD_SQL_MAP.get(field) + SPACE + operation.getSymbolicValue() + SPACE + translatedValue;
+    }
+
+    /**
+     * Estimated share of rows matched by a predicate on the field, lower means more selective.
+     */
+    static double getFieldSelectivity(String field) {
+        return FIELD_SELECTIVITY_MAP.getOrDefault(field, 1.0);
+    }
+
+    private String translateToken(int index) {
+        TokenData tokenData = tokenDataList.get(index);
+        if (tokenData.tokenType == TokenType.FIELD) {
+            return PSEUDO_FIELD_SQL_MAP.get(tokenData.token);
+        }
+        if (tokenData.tokenType == TokenType.VALUE) {
+            Class<?> fieldDataType = FIELD_TYPE_MAP.get(tokenDataList.get(index - 2).token);
+            Function<String, String> valueTranslator = FIELD_TYPE_TRANSLATORS_MAP.get(fieldDataType);
+            return valueTranslator == null ? null : valueTranslator.apply(tokenData.token);
         }
-        return expression;
+        return null;
     }
 
     private static String translateDateToSqlFormat(String value) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(DATE_PATTERN);
-        DateTimeFormatter formatterForSql = DateTimeFormatter.ofPattern(SQL_DATE_PATTERN);
         try {
             value = value.replace("'", "");
-            LocalDateTime localDateTime = LocalDateTime.parse(value, formatter);
-            return "'" + formatterForSql.format(localDateTime) + "'";
+            LocalDateTime localDateTime = LocalDateTime.parse(value, DATE_FORMATTER);
+            return "'" + SQL_DATE_FORMATTER.format(localDateTime) + "'";
         } catch (DateTimeParseException e) {
             throw new TranslationToSqlException("Error during translation date");
         }
     }
 
-    public boolean checkExpression(String expression) {
-        if (expression == null) {
-            return true;
+    static Object parseFieldValue(String field, String value) {
+        Function<String, Object> parser = FIELD_TYPE_PARSERS_MAP.get(FIELD_TYPE_MAP.get(field));
+        if (parser == null) {
+            throw new IncorrectExpressionException("Incorrect expression");
         }
-        if (expression.isEmpty()) {
+        return parser.apply(value);
+    }
+
+    private static Object parseString(String value) {
+        return value.length() < 2 ? EMPTY_STRING : value.substring(1, value.length() - 1);
+    }
+
+    private static Object parseDate(String value) {
+        return LocalDateTime.parse(value.replace("'", ""), DATE_FORMATTER);
+    }
+
+    List<TokenData> getTokenDataList() {
+        return Collections.unmodifiableList(tokenDataList);
+    }
+
+    /**
+     * Number of tokens read by the last {@link #checkExpression(String)}, also when it failed partway
+     * and {@link #getTokenDataList()} was left unchanged.
+     */
+    int getReadTokenCount() {
+        return readTokenCount;
+    }
+
+    /**
+     * Validates the expression in a single forward pass. Every char is looked at a constant number of times and
+     * the condensed grammar state is bounded by the grammar, so validation and translation take O(n) time in the
+     * expression length. The configured {@link ParsingLimits} are checked during the same pass and reject
+     * oversized input as early as possible with {@link ExpressionLimitExceededException}.
+     */
+    public boolean checkExpression(String expression) {
+        if (expression == null || expression.isEmpty()) {
+            tokenDataList = new ArrayList<>();
+            readTokenCount = 0;
             return true;
         }
-        String interimExpression = normalizeExpression(expression);
-        String condensedExpression = processNormalizedExpression(interimExpression);
+        checkExpressionLength(expression);
+        String condensedExpression = processExpression(expression);
 
         condensedExpression = condenseExpression(condensedExpression).trim();
         if (!CONDENSED_EXPRESSION.equals(condensedExpression)) {
@@ -126,69 +263,449 @@ public class ParsingArtificialLanguage {
         return true;
     }
 
-    private String processNormalizedExpression(String normalizedExpression) {
-        Deque<String> stack = new ArrayDeque<>();
-        String condensedExpression = EMPTY_STRING;
-        int tokenCounter = 0;
-        List<TokenData> tokenDataList = new ArrayList<>();
+    private void checkExpressionLength(String expression) {
+        if (expression.length() > limits.getMaxExpressionLength()) {
+            throw new ExpressionLimitExceededException("Expression length exceeds " + limits.getMaxExpressionLength());
+        }
+    }
 
-        while (!normalizedExpression.isEmpty()) {
-            StringBuilder currentBuilder = new StringBuilder(condensedExpression);
-            currentBuilder.append(SPACE);
+    /**
+     * Validation-only counterpart of {@link #checkExpression(String)}: a single pass over the raw chars driven by
+     * transition tables derived from {@code TYPES_OF_EXPRESSION}, {@code TYPES_OF_CONDENSED_EXPRESSION} and
+     * {@code ALLOWED_OPERATION_MAP}. Values are checked in place, nothing is allocated and nothing is thrown.
+     */
+    public boolean isValidExpression(String expression) {
+        if (expression == null || expression.isEmpty()) {
+            return true;
+        }
+        int length = expression.length();
+        if (length > limits.getMaxExpressionLength()) {
+            return false;
+        }
+        int state = EMPTY_STATE;
+        int depth = 0;
+        int tokenCount = 0;
+        int fieldIndex = NOT_FOUND;
+        Operation operation = EMPTY_OPERATION;
+        int i = 0;
+        while (i < length) {
+            char currChar = expression.charAt(i);
+            if (isWhitespace(currChar)) {
+                i++;
+                continue;
+            }
+            if (++tokenCount > limits.getMaxTokenCount()) {
+                return false;
+            }
+            if (currChar == '(') {
+                if (!OPEN_BRACKET_ALLOWED[state] || depth == limits.getMaxNestingDepth()) {
+                    return false;
+                }
+                depth++;
+                state = EMPTY_STATE;
+                i++;
+                continue;
+            }
+            if (currChar == ')') {
+                if (depth == 0 || state != CONDENSED_STATE) {
+                    return false;
+                }
+                depth--;
+                state = CLOSE_BRACKET_STATE;
+                i++;
+                continue;
+            }
+            int tokenEnd;
+            int tokenTypeIndex;
+            if (GRAMMAR_TRANSITIONS[state][TokenType.VALUE.ordinal()] != REJECTED_STATE) {
+                Class<?> fieldType = FIELD_TYPE_TABLE[fieldIndex];
+                tokenEnd = fieldType == Integer.class
+                        ? findWordEnd(expression, i)
+                        : findQuotedValueEnd(expression, i, limits.getMaxLiteralLength());
+                if (tokenEnd == NOT_FOUND || tokenEnd - i > limits.getMaxLiteralLength()
+                        || !ALLOWED_OPERATION_TABLE[fieldIndex][operation.ordinal()]
+                        || !isValidValue(fieldType, expression, i, tokenEnd)) {
+                    return false;
+                }
+                tokenTypeIndex = TokenType.VALUE.ordinal();
+            } else if (isOperationChar(currChar)) {
+                tokenEnd = i + 1 < length && expression.charAt(i + 1) == '=' && currChar != '=' ? i + 2 : i + 1;
+                operation = findOperation(expression, i, tokenEnd);
+                tokenTypeIndex = TokenType.OPERATION.ordinal();
+            } else {
+                tokenEnd = findWordEnd(expression, i);
+                if (tokenEnd == NOT_FOUND) {
+                    return false;
+                }
+                int wordFieldIndex = findFieldIndex(expression, i, tokenEnd);
+                if (matchesWord(expression, i, tokenEnd, LIKE.getSymbolicValue())) {
+                    operation = LIKE;
+                    tokenTypeIndex = TokenType.OPERATION.ordinal();
+                } else if (wordFieldIndex != NOT_FOUND) {
+                    fieldIndex = wordFieldIndex;
+                    tokenTypeIndex = TokenType.FIELD.ordinal();
+                } else if (findLogicalOperation(expression, i, tokenEnd) != null) {
+                    tokenTypeIndex = TokenType.LOGICAL_OPERATOR.ordinal();
+                } else {
+                    tokenTypeIndex = TokenType.VALUE.ordinal();
+                }
+            }
+            state = GRAMMAR_TRANSITIONS[state][tokenTypeIndex];
+            if (state == REJECTED_STATE) {
+                return false;
+            }
+            i = tokenEnd;
+        }
+        return depth == 0 && state == CONDENSED_STATE;
+    }
+
+    private static int findWordEnd(String expression, int start) {
+        int length = expression.length();
+        for (int i = start; i < length; i++) {
+            char currChar = expression.charAt(i);
+            if (isWhitespace(currChar) || currChar == '(' || currChar == ')') {
+                return i;
+            }
+            if (isControlCharacter(currChar)) {
+                return NOT_FOUND;
+            }
+            if (isOperationChar(currChar)) {
+                boolean twoCharOperation = currChar != '=' && i + 1 < length && expression.charAt(i + 1) == '=';
+                return twoCharOperation && i > start ? i : NOT_FOUND;
+            }
+        }
+        return length;
+    }
+
+    private static int findQuotedValueEnd(String expression, int start, int maxLiteralLength) {
+        if (expression.charAt(start) != '\'') {
+            return NOT_FOUND;
+        }
+        int scanEnd = (int) Math.min(expression.length(), (long) start + maxLiteralLength);
+        for (int i = start; i < scanEnd; i++) {
+            char currChar = expression.charAt(i);
+            if (isControlCharacter(currChar)) {
+                return NOT_FOUND;
+            }
+            if (currChar == '\'' && isQuotedValueBoundary(expression, i + 1)) {
+                return i + 1;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    private static boolean isQuotedValueBoundary(String expression, int index) {
+        if (index >= expression.length()) {
+            return true;
+        }
+        char currChar = expression.charAt(index);
+        return isWhitespace(currChar) || currChar == '(' || currChar == ')'
+                || (currChar == '>' || currChar == '<') && index + 1 < expression.length()
+                && expression.charAt(index + 1) == '=';
+    }
+
+    /**
+     * Tokens are separated by spaces, tabs and line breaks only, other control characters are not whitespace.
+     */
+    private static boolean isWhitespace(char currChar) {
+        return currChar == ' ' || currChar == '\t' || currChar == '\n' || currChar == '\r';
+    }
+
+    /**
+     * Control characters other than whitespace are rejected anywhere in the expression, quoted values included,
+     * so they never reach the translated SQL.
+     */
+    private static boolean isControlCharacter(char currChar) {
+        return Character.isISOControl(currChar) && !isWhitespace(currChar);
+    }
+
+    private static boolean isOperationChar(char currChar) {
+        return currChar == '>' || currChar == '<' || currChar == '=';
+    }
+
+    private static Operation findOperation(String expression, int start, int end) {
+        char firstChar = expression.charAt(start);
+        if (end - start == 2) {
+            return firstChar == '>' ? GREATER_OR_EQUAL : LESS_OR_EQUAL;
+        }
+        return firstChar == '>' ? GREATER : firstChar == '<' ? LESS : EQUAL;
+    }
+
+    private static int findFieldIndex(String expression, int start, int end) {
+        for (int i = 0; i < FIELD_NAME_TABLE.length; i++) {
+            if (matchesWord(expression, start, end, FIELD_NAME_TABLE[i])) {
+                return i;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    private static String findLogicalOperation(String expression, int start, int end) {
+        for (String logicalOperation : LOGICAL_OPERATION_TABLE) {
+            if (matchesWord(expression, start, end, logicalOperation)) {
+                return logicalOperation;
+            }
+        }
+        return null;
+    }
+
+    private static boolean matchesWord(String expression, int start, int end, String word) {
+        return end - start == word.length() && expression.regionMatches(true, start, word, 0, word.length());
+    }
+
+    private static boolean isValidValue(Class<?> fieldType, String expression, int start, int end) {
+        if (fieldType == Integer.class) {
+            return isValidInteger(expression, start, end);
+        }
+        if (fieldType == Date.class) {
+            return isValidDate(expression, start, end);
+        }
+        return true;
+    }
+
+    private static boolean isValidInteger(String expression, int start, int end) {
+        int i = start;
+        boolean negative = expression.charAt(i) == '-';
+        if (negative || expression.charAt(i) == '+') {
+            i++;
+        }
+        if (i == end) {
+            return false;
+        }
+        long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = Character.digit(expression.charAt(i), 10);
+            if (digit < 0) {
+                return false;
+            }
+            value = value * 10 + digit;
+            if (value > limit) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-            String separator = determineSeparator(tokenCounter, tokenDataList);
+    private static boolean isValidDate(String expression, int start, int end) {
+        int patternIndex = 0;
+        int day = 0;
+        int month = 0;
+        int year = 0;
+        int hour = 0;
+        int minute = 0;
+        for (int i = start; i < end; i++) {
+            char currChar = expression.charAt(i);
+            if (currChar == '\'') {
+                continue;
+            }
+            if (patternIndex == DATE_PATTERN.length()) {
+                return false;
+            }
+            char patternChar = DATE_PATTERN.charAt(patternIndex++);
+            if (!Character.isLetter(patternChar)) {
+                if (currChar != patternChar) {
+                    return false;
+                }
+                continue;
+            }
+            if (currChar < '0' || currChar > '9') {
+                return false;
+            }
+            int digit = currChar - '0';
+            switch (patternChar) {
+                case 'd':
+                    day = day * 10 + digit;
+                    break;
+                case 'M':
+                    month = month * 10 + digit;
+                    break;
+                case 'y':
+                    year = year * 10 + digit;
+                    break;
+                case 'H':
+                    hour = hour * 10 + digit;
+                    break;
+                default:
+                    minute = minute * 10 + digit;
+            }
+        }
+        return patternIndex == DATE_PATTERN.length() && day >= 1 && day <= 31 && month >= 1 && month <= 12
+                && year >= 1 && (hour <= 23 && minute <= 59 || hour == 24 && minute == 0);
+    }
 
-            int nextSpace = normalizedExpression.indexOf(separator);
-            if (nextSpace == -1) {
-                nextSpace = normalizedExpression.length();
+    private static List<String> buildGrammarStates() {
+        List<String> states = new ArrayList<>(List.of(EMPTY_STRING, CONDENSED_EXPRESSION));
+        TYPES_OF_EXPRESSION.stream().filter(type -> !states.contains(type)).sorted().forEach(states::add);
+        return List.copyOf(states);
+    }
+
+    private static int[][] buildGrammarTransitions() {
+        int[][] transitions = new int[GRAMMAR_STATES.size()][TokenType.values().length];
+        for (int state = 0; state < GRAMMAR_STATES.size(); state++) {
+            Arrays.fill(transitions[state], REJECTED_STATE);
+            for (Map.Entry<TokenType, String> symbol : TOKEN_TYPE_SYMBOL_MAP.entrySet()) {
+                transitions[state][symbol.getKey().ordinal()] = findNextGrammarState(state, symbol.getValue());
+            }
+        }
+        return transitions;
+    }
+
+    private static int buildBracketTransitions() {
+        int closeBracketState = REJECTED_STATE;
+        for (int state = 0; state < GRAMMAR_STATES.size(); state++) {
+            int nextState = findNextGrammarState(state, CONDENSED_EXPRESSION);
+            if (nextState == REJECTED_STATE) {
+                continue;
+            }
+            if (closeBracketState != REJECTED_STATE && closeBracketState != nextState) {
+                throw new IllegalStateException("Bracket transitions depend on the enclosing state");
             }
-            int indexTo = Math.min(normalizedExpression.length(), nextSpace + separator.length() - 1);
-            String token = normalizedExpression.substring(0, indexTo);
-            normalizedExpression = normalizedExpression.substring(indexTo).trim();
+            OPEN_BRACKET_ALLOWED[state] = true;
+            closeBracketState = nextState;
+        }
+        return closeBracketState;
+    }
 
-            TokenType tokenType = encodeToken(currentBuilder, token);
-            if (tokenType != TokenType.UNKNOWN) {
-                tokenCounter++;
-                tokenDataList.add(new TokenData(tokenType, token));
+    private static int findNextGrammarState(int state, String symbol) {
+        String expression = (GRAMMAR_STATES.get(state) + SPACE + symbol).trim();
+        if (TYPES_OF_CONDENSED_EXPRESSION.contains(expression)) {
+            return CONDENSED_STATE;
+        }
+        return GRAMMAR_STATES.indexOf(expression);
+    }
+
+    private static boolean[][] buildAllowedOperationTable() {
+        boolean[][] table = new boolean[FIELD_NAME_TABLE.length][Operation.values().length];
+        for (int i = 0; i < FIELD_NAME_TABLE.length; i++) {
+            for (Operation operation : ALLOWED_OPERATION_MAP.get(FIELD_TYPE_TABLE[i])) {
+                table[i][operation.ordinal()] = true;
             }
-            if (tokenType.equals(TokenType.FIELD)) {
-                token = token.toUpperCase();
+        }
+        return table;
+    }
+
+    private String processExpression(String expression) {
+        Deque<String> stack = new ArrayDeque<>();
+        String condensedExpression = EMPTY_STRING;
+        List<TokenData> tokenDataList = new ArrayList<>();
+        readTokenCount = 0;
+
+        int position = skipWhitespace(expression, 0);
+        while (position < expression.length()) {
+            TokenData tokenData = readToken(expression, position, tokenDataList);
+            tokenDataList.add(tokenData);
+            readTokenCount++;
+            if (tokenDataList.size() > limits.getMaxTokenCount()) {
+                throw new ExpressionLimitExceededException("Token count exceeds " + limits.getMaxTokenCount());
             }
-            setInternalFields(tokenType, token);
 
-            if (token.equals(OPEN_BRACKET)) {
-                stack.push(token);
+            StringBuilder currentBuilder = new StringBuilder(condensedExpression);
+            currentBuilder.append(SPACE);
+            encodeToken(currentBuilder, tokenData.tokenType);
+            setInternalFields(tokenData.tokenType, tokenData.token);
+
+            if (tokenData.tokenType == TokenType.OPEN_BRACKET) {
+                if (stack.size() / 2 == limits.getMaxNestingDepth()) {
+                    throw new ExpressionLimitExceededException("Nesting depth exceeds " + limits.getMaxNestingDepth());
+                }
+                stack.push(OPEN_BRACKET);
                 stack.push(condensedExpression);
                 condensedExpression = EMPTY_STRING;
                 currentBuilder = new StringBuilder();
             }
-            if (token.equals(CLOSE_BRACKET)) {
+            if (tokenData.tokenType == TokenType.CLOSE_BRACKET) {
                 processCloseBracket(stack, currentBuilder);
             }
 
             condensedExpression = condenseExpression(currentBuilder.toString());
 
-            if (TokenType.VALUE.equals(tokenType)) {
+            if (TokenType.VALUE.equals(tokenData.tokenType)) {
                 checkFieldOperationValueConsistency();
             }
+            position = skipWhitespace(expression, tokenData.end);
+        }
+        if (!stack.isEmpty()) {
+            throw new IncorrectExpressionException("Incorrect expression");
         }
         this.tokenDataList = tokenDataList;
         return condensedExpression;
     }
 
-    private String determineSeparator(int tokenCounter, List<TokenData> tokenDataList) {
-        String separator = SPACE;
-        if (tokenCounter >= 2) {
-            TokenData tokenData = tokenDataList.get(tokenCounter - 2);
-            if (tokenData.tokenType == TokenType.FIELD &&
-                    (FIELD_TYPE_MAP.get(tokenData.token) == Date.class ||
-                            FIELD_TYPE_MAP.get(tokenData.token) == String.class
-                    )) {
-                separator = VALUE_WITH_QUOTE_TOKEN_SEPARATOR;
+    private static int skipWhitespace(String expression, int position) {
+        while (position < expression.length() && isWhitespace(expression.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private TokenData readToken(String expression, int start, List<TokenData> tokenDataList) {
+        char currChar = expression.charAt(start);
+        if (currChar == '(') {
+            return new TokenData(TokenType.OPEN_BRACKET, OPEN_BRACKET, start, start + 1);
+        }
+        if (currChar == ')') {
+            return new TokenData(TokenType.CLOSE_BRACKET, CLOSE_BRACKET, start, start + 1);
+        }
+        String valueField = findValueField(tokenDataList);
+        if (valueField != null) {
+            return readValue(expression, start, FIELD_TYPE_MAP.get(valueField));
+        }
+        if (isOperationChar(currChar)) {
+            int end = start + 1 < expression.length() && expression.charAt(start + 1) == '=' && currChar != '='
+                    ? start + 2
+                    : start + 1;
+            return new TokenData(TokenType.OPERATION, findOperation(expression, start, end).getSymbolicValue(), start, end);
+        }
+        int end = findWordEnd(expression, start);
+        if (end == NOT_FOUND) {
+            throw new IncorrectExpressionException("Incorrect expression");
+        }
+        if (matchesWord(expression, start, end, LIKE.getSymbolicValue())) {
+            return new TokenData(TokenType.OPERATION, LIKE.getSymbolicValue(), start, end);
+        }
+        int fieldIndex = findFieldIndex(expression, start, end);
+        if (fieldIndex != NOT_FOUND) {
+            return new TokenData(TokenType.FIELD, FIELD_NAME_TABLE[fieldIndex], start, end);
+        }
+        String logicalOperation = findLogicalOperation(expression, start, end);
+        if (logicalOperation != null) {
+            return new TokenData(TokenType.LOGICAL_OPERATOR, logicalOperation, start, end);
+        }
+        checkLiteralLength(start, end);
+        return new TokenData(TokenType.VALUE, expression.substring(start, end), start, end);
+    }
+
+    private static String findValueField(List<TokenData> tokenDataList) {
+        int size = tokenDataList.size();
+        if (size >= 2 && tokenDataList.get(size - 1).tokenType == TokenType.OPERATION
+                && tokenDataList.get(size - 2).tokenType == TokenType.FIELD) {
+            return tokenDataList.get(size - 2).token;
+        }
+        return null;
+    }
+
+    private TokenData readValue(String expression, int start, Class<?> fieldType) {
+        int end;
+        if (fieldType == Integer.class) {
+            end = findWordEnd(expression, start);
+        } else {
+            end = findQuotedValueEnd(expression, start, limits.getMaxLiteralLength());
+            if (end == NOT_FOUND && findQuotedValueEnd(expression, start, Integer.MAX_VALUE) != NOT_FOUND) {
+                throw new ExpressionLimitExceededException("Literal length exceeds " + limits.getMaxLiteralLength());
             }
         }
+        if (end == NOT_FOUND) {
+            throw new IncorrectExpressionException("Incorrect expression");
+        }
+        checkLiteralLength(start, end);
+        return new TokenData(TokenType.VALUE, expression.substring(start, end), start, end);
+    }
 
-        return separator;
+    private void checkLiteralLength(int start, int end) {
+        if (end - start > limits.getMaxLiteralLength()) {
+            throw new ExpressionLimitExceededException("Literal length exceeds " + limits.getMaxLiteralLength());
+        }
     }
 
     private void checkFieldOperationValueConsistency() {
@@ -226,13 +743,12 @@ public class ParsingArtificialLanguage {
     }
 
     private static void checkDate(String value) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(DATE_PATTERN);
         if (value == null || !value.startsWith("'") || !value.endsWith("'")) {
             throw new IncorrectExpressionException("Incorrect expression");
         }
         try {
             value = value.replace("'", "");
-            LocalDateTime.parse(value, formatter);
+            LocalDateTime.parse(value, DATE_FORMATTER);
         } catch (DateTimeParseException e) {
             throw new IncorrectExpressionException("Incorrect expression");
         }
@@ -257,9 +773,12 @@ public class ParsingArtificialLanguage {
         if (stack.isEmpty()) {
             throw new IncorrectExpressionException("Incorrect expression");
         }
+        if (!CONDENSED_EXPRESSION.equals(condenseExpression(currentBuilder.toString()).trim())) {
+            throw new IncorrectExpressionException("Incorrect expression");
+        }
         while (!stack.isEmpty() && !stack.peek().equals(OPEN_BRACKET)) {
             String tokenFromStack = stack.pop();
-            if (!tokenFromStack.equals(OPEN_BRACKET)) {
+            if (!tokenFromStack.equals(OPEN_BRACKET) && !tokenFromStack.isBlank()) {
                 directTokensQueue.add(tokenFromStack);
             }
         }
@@ -273,45 +792,19 @@ public class ParsingArtificialLanguage {
 
             condensedExpression = condenseExpression(condensedExpression);
         }
-        currentBuilder.insert(0, SPACE);
-        currentBuilder.insert(0, condensedExpression);
-    }
-
-    private TokenType encodeToken(StringBuilder currentBuilder, String token) {
-        if (ALLOWED_OPERATIONS.contains(findBySymbolicValue(token))) {
-            currentBuilder.append(OPERATION);
-            return TokenType.OPERATION;
-        } else if (FIELD_NAMES.contains(token)) {
-            currentBuilder.append(FIELD);
-            return TokenType.FIELD;
-        } else if (LOGICAL_OPERATIONS.contains(token)) {
-            currentBuilder.append(LOGICAL_OPERATION);
-            return TokenType.LOGICAL_OPERATOR;
-        } else if (!token.equals(OPEN_BRACKET) && !token.equals(CLOSE_BRACKET)) {
-            currentBuilder.append(VALUE);
-            return TokenType.VALUE;
+        String innerExpression = currentBuilder.toString().trim();
+        currentBuilder.setLength(0);
+        if (!condensedExpression.isEmpty()) {
+            currentBuilder.append(condensedExpression).append(SPACE);
         }
-        return TokenType.UNKNOWN;
+        currentBuilder.append(innerExpression);
     }
 
-    private String normalizeExpression(String expression) {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < expression.length(); i++) {
-            char currChar = expression.charAt(i);
-            if (TECHNICAL_TOKENS.contains(currChar) && i + 1 < expression.length() && expression.charAt(i + 1) != '=') {
-                sb.append(currChar);
-                sb.append(SPACE);
-            } else {
-                sb.append(currChar);
-            }
+    private void encodeToken(StringBuilder currentBuilder, TokenType tokenType) {
+        String symbol = TOKEN_TYPE_SYMBOL_MAP.get(tokenType);
+        if (symbol != null) {
+            currentBuilder.append(symbol);
         }
-        return sb.toString()
-                .replace("(", " ( ")
-                .replace(")", " ) ")
-                .replace(">=", " >= ")
-                .replace("<=", " <= ")
-                .replace(TWO_SPACES, SPACE)
-                .trim().toUpperCase();
     }
 
     private String condenseExpression(String expression) {
@@ -331,13 +824,17 @@ public class ParsingArtificialLanguage {
         throw new IncorrectExpressionException("Incorrect Expression");
     }
 
-    private static class TokenData {
+    static class TokenData {
         private final TokenType tokenType;
         private final String token;
+        private final int start;
+        private final int end;
 
-        private TokenData(TokenType tokenType, String token) {
+        private TokenData(TokenType tokenType, String token, int start, int end) {
             this.tokenType = tokenType;
             this.token = token;
+            this.start = start;
+            this.end = end;
         }
 
         public String getToken() {
@@ -349,12 +846,81 @@ public class ParsingArtificialLanguage {
         }
     }
 
+    private static class Utf8ByteBufferAppender implements Appendable {
+        private final ByteBuffer out;
+        private char highSurrogate;
+
+        private Utf8ByteBufferAppender(ByteBuffer out) {
+            this.out = out;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) {
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            for (int i = start; i < end; i++) {
+                append(csq.charAt(i));
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            if (highSurrogate != 0) {
+                char pendingSurrogate = highSurrogate;
+                highSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    putCodePoint(Character.toCodePoint(pendingSurrogate, c));
+                    return this;
+                }
+                out.put((byte) '?');
+            }
+            if (Character.isHighSurrogate(c)) {
+                highSurrogate = c;
+            } else if (Character.isLowSurrogate(c)) {
+                out.put((byte) '?');
+            } else {
+                putCodePoint(c);
+            }
+            return this;
+        }
+
+        private void finish() {
+            if (highSurrogate != 0) {
+                highSurrogate = 0;
+                out.put((byte) '?');
+            }
+        }
+
+        private void putCodePoint(int codePoint) {
+            if (codePoint < 0x80) {
+                out.put((byte) codePoint);
+            } else if (codePoint < 0x800) {
+                out.put((byte) (0xC0 | codePoint >> 6));
+                out.put((byte) (0x80 | codePoint & 0x3F));
+            } else if (codePoint < 0x10000) {
+                out.put((byte) (0xE0 | codePoint >> 12));
+                out.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                out.put((byte) (0x80 | codePoint & 0x3F));
+            } else {
+                out.put((byte) (0xF0 | codePoint >> 18));
+                out.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                out.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                out.put((byte) (0x80 | codePoint & 0x3F));
+            }
+        }
+    }
+
     enum TokenType {
         OPERATION,
         FIELD,
         LOGICAL_OPERATOR,
         VALUE,
-        UNKNOWN;
+        OPEN_BRACKET,
+        CLOSE_BRACKET;
     }
 
     enum Operation {
@@ -383,15 +949,78 @@ public class ParsingArtificialLanguage {
         }
     }
 
+    public static class ParsingLimits {
+        public static final ParsingLimits DEFAULT = new ParsingLimits(65_536, 4_096, 64, 1_024);
+
+        private final int maxExpressionLength;
+        private final int maxTokenCount;
+        private final int maxNestingDepth;
+        private final int maxLiteralLength;
+
+        public ParsingLimits(int maxExpressionLength, int maxTokenCount, int maxNestingDepth, int maxLiteralLength) {
+            if (maxExpressionLength < 1 || maxTokenCount < 1 || maxNestingDepth < 0 || maxLiteralLength < 1) {
+                throw new IllegalArgumentException("Parsing limits must be positive");
+            }
+            this.maxExpressionLength = maxExpressionLength;
+            this.maxTokenCount = maxTokenCount;
+            this.maxNestingDepth = maxNestingDepth;
+            this.maxLiteralLength = maxLiteralLength;
+        }
+
+        public int getMaxExpressionLength() {
+            return maxExpressionLength;
+        }
+
+        public int getMaxTokenCount() {
+            return maxTokenCount;
+        }
+
+        public int getMaxNestingDepth() {
+            return maxNestingDepth;
+        }
+
+        public int getMaxLiteralLength() {
+            return maxLiteralLength;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ParsingLimits)) {
+                return false;
+            }
+            ParsingLimits that = (ParsingLimits) o;
+            return maxExpressionLength == that.maxExpressionLength && maxTokenCount == that.maxTokenCount
+                    && maxNestingDepth == that.maxNestingDepth && maxLiteralLength == that.maxLiteralLength;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(maxExpressionLength, maxTokenCount, maxNestingDepth, maxLiteralLength);
+        }
+    }
+
     public static class IncorrectExpressionException extends RuntimeException {
         public IncorrectExpressionException(String message) {
             super(message);
         }
     }
 
+    public static class ExpressionLimitExceededException extends IncorrectExpressionException {
+        public ExpressionLimitExceededException(String message) {
+            super(message);
+        }
+    }
+
     public static class TranslationToSqlException extends RuntimeException {
         public TranslationToSqlException(String message) {
             super(message);
         }
+
+        public TranslationToSqlException(String message, Throwable cause) {
+            super(message, cause);
+        }
     }
 }
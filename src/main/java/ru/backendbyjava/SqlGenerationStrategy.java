@@ -0,0 +1,5 @@
+package ru.backendbyjava;
+
+public interface SqlGenerationStrategy {
+    String generate(ExpressionTree expressionTree);
+}
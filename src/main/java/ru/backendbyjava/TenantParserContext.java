@@ -0,0 +1,192 @@
+package ru.backendbyjava;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import ru.backendbyjava.ParsingArtificialLanguage.ParsingLimits;
+
+/**
+ * Parser context of one tenant. Every call uses a fresh parser with the tenant's limits, while the keyword,
+ * field and operation tables are the static ones of {@link ParsingArtificialLanguage}. The literals, values and
+ * canonical keys retained by trees from {@link #parse(String)} are interned in the pool shared by all tenants.
+ * Memory and CPU time spent on the tenant's expressions are accounted in a fixed window, and once either
+ * budget of the window is used up, further calls are rejected with {@link TenantThrottledException}
+ * until the next window starts.
+ */
+public class TenantParserContext {
+    private static final long TOKEN_OVERHEAD_BYTES = 48;
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final String tenantId;
+    private final ParsingLimits limits;
+    private final Budget budget;
+    private final LiteralPool literalPool;
+    private final LongSupplier clock;
+    private final LongSupplier cpuClock;
+
+    private long windowStart;
+    private long windowBytes;
+    private long windowCpuNanos;
+    private long requestCount;
+    private long throttledRequestCount;
+
+    TenantParserContext(String tenantId, ParsingLimits limits, Budget budget, LiteralPool literalPool) {
+        this(tenantId, limits, budget, literalPool, System::nanoTime, TenantParserContext::currentThreadCpuTime);
+    }
+
+    TenantParserContext(String tenantId, ParsingLimits limits, Budget budget, LiteralPool literalPool,
+                        LongSupplier clock, LongSupplier cpuClock) {
+        this.tenantId = tenantId;
+        this.limits = limits;
+        this.budget = budget;
+        this.literalPool = literalPool;
+        this.clock = clock;
+        this.cpuClock = cpuClock;
+        this.windowStart = clock.getAsLong();
+    }
+
+    public boolean checkExpression(String expression) {
+        return execute(expression, parser -> parser.checkExpression(expression));
+    }
+
+    public String translateExpression(String expression) {
+        return execute(expression, parser -> parser.translateExpression(expression));
+    }
+
+    public String translateExpression(String expression, SqlGenerationStrategy strategy) {
+        return execute(expression, parser -> parser.translateExpression(expression, strategy));
+    }
+
+    public ExpressionTree parse(String expression) {
+        return execute(expression, parser -> ExpressionTree.parse(parser, expression, literalPool::intern));
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public ParsingLimits getLimits() {
+        return limits;
+    }
+
+    public Budget getBudget() {
+        return budget;
+    }
+
+    public synchronized Usage getUsage() {
+        return new Usage(windowBytes, windowCpuNanos, requestCount, throttledRequestCount);
+    }
+
+    private <T> T execute(String expression, Function<ParsingArtificialLanguage, T> operation) {
+        reserve(expression == null ? 0 : (long) Character.BYTES * expression.length());
+        ParsingArtificialLanguage parser = new ParsingArtificialLanguage(limits);
+        long cpuStart = cpuClock.getAsLong();
+        try {
+            return operation.apply(parser);
+        } finally {
+            charge(TOKEN_OVERHEAD_BYTES * parser.getReadTokenCount(), cpuClock.getAsLong() - cpuStart);
+        }
+    }
+
+    private synchronized void reserve(long bytes) {
+        long now = clock.getAsLong();
+        if (now - windowStart >= budget.getWindow().toNanos()) {
+            windowStart = now;
+            windowBytes = 0;
+            windowCpuNanos = 0;
+        }
+        if (bytes > budget.getMaxBytesPerWindow() - windowBytes || windowCpuNanos >= budget.getMaxCpuNanosPerWindow()) {
+            throttledRequestCount++;
+            throw new TenantThrottledException("Tenant " + tenantId + " exceeded its parsing budget");
+        }
+        windowBytes += bytes;
+        requestCount++;
+    }
+
+    private synchronized void charge(long bytes, long cpuNanos) {
+        windowBytes = saturatedAdd(windowBytes, bytes);
+        windowCpuNanos = saturatedAdd(windowCpuNanos, Math.max(0, cpuNanos));
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < a ? Long.MAX_VALUE : sum;
+    }
+
+    private static long currentThreadCpuTime() {
+        return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled()
+                ? THREAD_MX_BEAN.getCurrentThreadCpuTime()
+                : System.nanoTime();
+    }
+
+    public static class Budget {
+        public static final Budget UNLIMITED = new Budget(Long.MAX_VALUE, Long.MAX_VALUE, Duration.ofSeconds(1));
+
+        private final long maxBytesPerWindow;
+        private final long maxCpuNanosPerWindow;
+        private final Duration window;
+
+        public Budget(long maxBytesPerWindow, long maxCpuNanosPerWindow, Duration window) {
+            if (maxBytesPerWindow < 1 || maxCpuNanosPerWindow < 1 || window.isNegative() || window.isZero()) {
+                throw new IllegalArgumentException("Tenant budget must be positive");
+            }
+            this.maxBytesPerWindow = maxBytesPerWindow;
+            this.maxCpuNanosPerWindow = maxCpuNanosPerWindow;
+            this.window = window;
+        }
+
+        public long getMaxBytesPerWindow() {
+            return maxBytesPerWindow;
+        }
+
+        public long getMaxCpuNanosPerWindow() {
+            return maxCpuNanosPerWindow;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+    }
+
+    /**
+     * Bytes and CPU time of the current window, requests and rejected requests since the context was registered.
+     */
+    public static class Usage {
+        private final long bytes;
+        private final long cpuNanos;
+        private final long requestCount;
+        private final long throttledRequestCount;
+
+        private Usage(long bytes, long cpuNanos, long requestCount, long throttledRequestCount) {
+            this.bytes = bytes;
+            this.cpuNanos = cpuNanos;
+            this.requestCount = requestCount;
+            this.throttledRequestCount = throttledRequestCount;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        public long getRequestCount() {
+            return requestCount;
+        }
+
+        public long getThrottledRequestCount() {
+            return throttledRequestCount;
+        }
+    }
+
+    public static class TenantThrottledException extends RuntimeException {
+        public TenantThrottledException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package ru.backendbyjava;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import ru.backendbyjava.ParsingArtificialLanguage.ParsingLimits;
+import ru.backendbyjava.TenantParserContext.Budget;
+import ru.backendbyjava.TenantParserContext.Usage;
+
+/**
+ * Parser contexts of all tenants. Tenants share one literal pool for the strings retained by parsed trees,
+ * and tenants with equal parsing limits share one {@link ParsingLimits} instance.
+ */
+public class TenantParserRegistry {
+    private final LiteralPool literalPool;
+    private final ConcurrentMap<ParsingLimits, ParsingLimits> sharedLimits = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, TenantParserContext> contexts = new ConcurrentHashMap<>();
+
+    public TenantParserRegistry() {
+        this(new LiteralPool());
+    }
+
+    public TenantParserRegistry(LiteralPool literalPool) {
+        this.literalPool = literalPool;
+    }
+
+    /**
+     * Registers the tenant or replaces its context, which also resets its accounting.
+     */
+    public TenantParserContext register(String tenantId, ParsingLimits limits, Budget budget) {
+        ParsingLimits tenantLimits = sharedLimits.computeIfAbsent(limits, key -> key);
+        TenantParserContext context = new TenantParserContext(tenantId, tenantLimits, budget, literalPool);
+        contexts.put(tenantId, context);
+        return context;
+    }
+
+    public TenantParserContext getContext(String tenantId) {
+        TenantParserContext context = contexts.get(tenantId);
+        if (context == null) {
+            throw new IllegalArgumentException("Unknown tenant " + tenantId);
+        }
+        return context;
+    }
+
+    public void unregister(String tenantId) {
+        contexts.remove(tenantId);
+    }
+
+    public Map<String, Usage> getUsage() {
+        Map<String, Usage> usage = new TreeMap<>();
+        contexts.forEach((tenantId, context) -> usage.put(tenantId, context.getUsage()));
+        return usage;
+    }
+
+    public LiteralPool getLiteralPool() {
+        return literalPool;
+    }
+}
@@ -0,0 +1,160 @@
+package ru.backendbyjava;
+
+import java.util.*;
+
+import ru.backendbyjava.ExpressionTree.Comparison;
+import ru.backendbyjava.ExpressionTree.Junction;
+import ru.backendbyjava.ExpressionTree.LogicalOperator;
+import ru.backendbyjava.ExpressionTree.Node;
+
+/**
+ * Rewrites the expression into disjunctive normal form and emits every disjunct as a separate
+ * {@code SELECT} combined with {@code UNION ALL}, so each branch can use the index of its own column.
+ * A branch excludes rows already returned by the previous ones with {@code (...) IS NOT TRUE}, which,
+ * unlike {@code NOT (...)}, keeps rows where the previous predicate is unknown because of NULL.
+ * Branches and the predicates of a conjunction are ordered by the field selectivity hint, most selective first.
+ * When the normal form has more disjuncts than the limit, a single {@code SELECT} with the original
+ * condition is emitted instead.
+ */
+public class UnionAllSqlGenerationStrategy implements SqlGenerationStrategy {
+    public static final String DEFAULT_SELECT_CLAUSE = "SELECT * FROM ARTICLE";
+    public static final int DEFAULT_MAX_DISJUNCTS = 16;
+
+    private static final String WHERE = " WHERE ";
+    private static final String AND = " AND ";
+    private static final String OR = " OR ";
+    private static final String UNION_ALL = " UNION ALL ";
+    private static final String IS_NOT_TRUE = ") IS NOT TRUE";
+
+    private final String selectClause;
+    private final int maxDisjuncts;
+
+    public UnionAllSqlGenerationStrategy() {
+        this(DEFAULT_SELECT_CLAUSE, DEFAULT_MAX_DISJUNCTS);
+    }
+
+    public UnionAllSqlGenerationStrategy(String selectClause, int maxDisjuncts) {
+        if (maxDisjuncts < 1) {
+            throw new IllegalArgumentException("maxDisjuncts must be positive");
+        }
+        this.selectClause = selectClause;
+        this.maxDisjuncts = maxDisjuncts;
+    }
+
+    @Override
+    public String generate(ExpressionTree expressionTree) {
+        Node root = expressionTree.getRoot();
+        List<List<Comparison>> disjuncts = toDisjunctiveNormalForm(root);
+        if (disjuncts == null) {
+            return selectClause + WHERE + translateNode(root, null);
+        }
+        if (disjuncts.size() == 1 && disjuncts.get(0).isEmpty()) {
+            return selectClause;
+        }
+        disjuncts = new ArrayList<>(disjuncts);
+        disjuncts.sort(Comparator.comparingDouble(UnionAllSqlGenerationStrategy::estimateSelectivity));
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < disjuncts.size(); i++) {
+            if (i > 0) {
+                sql.append(UNION_ALL);
+            }
+            sql.append(selectClause).append(WHERE).append(translateConjunction(disjuncts.get(i)));
+            for (int j = 0; j < i; j++) {
+                sql.append(AND).append('(').append(translateConjunction(disjuncts.get(j))).append(IS_NOT_TRUE);
+            }
+        }
+        return sql.toString();
+    }
+
+    private List<List<Comparison>> toDisjunctiveNormalForm(Node node) {
+        if (node instanceof Comparison) {
+            return List.of(List.of((Comparison) node));
+        }
+        Junction junction = (Junction) node;
+        List<List<Comparison>> result = junction.getOperator() == LogicalOperator.AND
+                ? List.of(List.of())
+                : new ArrayList<>();
+        for (Node child : junction.getChildren()) {
+            List<List<Comparison>> childDisjuncts = toDisjunctiveNormalForm(child);
+            if (childDisjuncts == null) {
+                return null;
+            }
+            if (junction.getOperator() == LogicalOperator.OR) {
+                result.addAll(childDisjuncts);
+            } else {
+                result = distribute(result, childDisjuncts);
+            }
+            if (result == null || result.size() > maxDisjuncts) {
+                return null;
+            }
+        }
+        return result;
+    }
+
+    private List<List<Comparison>> distribute(List<List<Comparison>> left, List<List<Comparison>> right) {
+        if ((long) left.size() * right.size() > maxDisjuncts) {
+            return null;
+        }
+        List<List<Comparison>> result = new ArrayList<>();
+        for (List<Comparison> leftConjunction : left) {
+            for (List<Comparison> rightConjunction : right) {
+                List<Comparison> conjunction = new ArrayList<>(leftConjunction);
+                rightConjunction.stream().filter(comparison -> !conjunction.contains(comparison)).forEach(conjunction::add);
+                result.add(conjunction);
+            }
+        }
+        return result;
+    }
+
+    private String translateConjunction(List<Comparison> conjunction) {
+        List<Comparison> orderedConjunction = new ArrayList<>(conjunction);
+        orderedConjunction.sort(Comparator.comparingDouble(
+                comparison -> ParsingArtificialLanguage.getFieldSelectivity(comparison.getField())));
+        StringJoiner sql = new StringJoiner(AND);
+        orderedConjunction.forEach(comparison -> sql.add(translateComparison(comparison)));
+        return sql.toString();
+    }
+
+    private String translateNode(Node node, LogicalOperator parentOperator) {
+        if (node instanceof Comparison) {
+            return translateComparison((Comparison) node);
+        }
+        Junction junction = (Junction) node;
+        List<Node> children = new ArrayList<>(junction.getChildren());
+        if (junction.getOperator() == LogicalOperator.AND) {
+            children.sort(Comparator.comparingDouble(UnionAllSqlGenerationStrategy::estimateSelectivity));
+        }
+        StringJoiner sql = new StringJoiner(junction.getOperator() == LogicalOperator.AND ? AND : OR);
+        children.forEach(child -> sql.add(translateNode(child, junction.getOperator())));
+        boolean needsBrackets = parentOperator == LogicalOperator.AND && junction.getOperator() == LogicalOperator.OR;
+        return needsBrackets ? "(" + sql + ")" : sql.toString();
+    }
+
+    private static double estimateSelectivity(List<Comparison> conjunction) {
+        double selectivity = 1.0;
+        for (Comparison comparison : conjunction) {
+            selectivity *= ParsingArtificialLanguage.getFieldSelectivity(comparison.getField());
+        }
+        return selectivity;
+    }
+
+    private static double estimateSelectivity(Node node) {
+        if (node instanceof Comparison) {
+            return ParsingArtificialLanguage.getFieldSelectivity(((Comparison) node).getField());
+        }
+        Junction junction = (Junction) node;
+        double selectivity = junction.getOperator() == LogicalOperator.AND ? 1.0 : 0.0;
+        for (Node child : junction.getChildren()) {
+            double childSelectivity = estimateSelectivity(child);
+            selectivity = junction.getOperator() == LogicalOperator.AND
+                    ? selectivity * childSelectivity
+                    : Math.min(1.0, selectivity + childSelectivity);
+        }
+        return selectivity;
+    }
+
+    private static String translateComparison(Comparison comparison) {
+        return ParsingArtificialLanguage.translateComparison(comparison.getField(), comparison.getOperation(),
+                comparison.getLiteral());
+    }
+}
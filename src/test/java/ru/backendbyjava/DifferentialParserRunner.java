@@ -0,0 +1,179 @@
+package ru.backendbyjava;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Runs several parser implementations over the same generated expressions on multiple threads,
+ * groups the inputs they disagree on by the combination of outcomes and measures the throughput of each one.
+ * An input whose outcome changes when it is replayed on a single thread is classified as non-deterministic.
+ */
+class DifferentialParserRunner {
+    private static final int MAX_SAMPLES_PER_CLASS = 5;
+    private static final String NON_DETERMINISTIC = "NON_DETERMINISTIC";
+
+    private final List<Implementation> implementations;
+
+    DifferentialParserRunner(List<Implementation> implementations) {
+        this.implementations = List.copyOf(implementations);
+    }
+
+    Report run(long inputCount, int threadCount, long seed) throws InterruptedException {
+        Report report = new Report(implementations);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threadCount; thread++) {
+                long threadInputCount = inputCount / threadCount + (thread < inputCount % threadCount ? 1 : 0);
+                long threadSeed = seed + thread;
+                futures.add(executor.submit(() -> runThread(report, threadInputCount, threadSeed)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Differential run failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return report;
+    }
+
+    private void runThread(Report report, long inputCount, long seed) {
+        ExpressionGenerator generator = new ExpressionGenerator(seed);
+        List<Predicate<String>> parsers = new ArrayList<>();
+        implementations.forEach(implementation -> parsers.add(implementation.parserFactory.get()));
+        Outcome[] outcomes = new Outcome[parsers.size()];
+
+        for (long i = 0; i < inputCount; i++) {
+            String expression = generator.nextExpression();
+            for (int j = 0; j < parsers.size(); j++) {
+                long start = System.nanoTime();
+                outcomes[j] = evaluate(parsers.get(j), expression);
+                report.elapsedNanos[j].add(System.nanoTime() - start);
+            }
+            report.inputCount.increment();
+            if (!allEqual(outcomes)) {
+                report.addDisagreement(classify(outcomes, expression), expression);
+            }
+        }
+    }
+
+    private String classify(Outcome[] outcomes, String expression) {
+        StringJoiner disagreementClass = new StringJoiner(", ");
+        for (int i = 0; i < outcomes.length; i++) {
+            Outcome replayedOutcome = evaluate(implementations.get(i).parserFactory.get(), expression);
+            if (replayedOutcome != outcomes[i]) {
+                return NON_DETERMINISTIC + " " + implementations.get(i).name;
+            }
+            disagreementClass.add(implementations.get(i).name + "=" + outcomes[i]);
+        }
+        return disagreementClass.toString();
+    }
+
+    private static Outcome evaluate(Predicate<String> parser, String expression) {
+        try {
+            return parser.test(expression) ? Outcome.ACCEPTED : Outcome.REJECTED;
+        } catch (ParsingArtificialLanguage.IncorrectExpressionException e) {
+            return Outcome.REJECTED;
+        } catch (RuntimeException | StackOverflowError | AssertionError e) {
+            // Other VM errors such as OutOfMemoryError still abort the run
+            return Outcome.CRASHED;
+        }
+    }
+
+    private static boolean allEqual(Outcome[] outcomes) {
+        for (Outcome outcome : outcomes) {
+            if (outcome != outcomes[0]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    enum Outcome {
+        ACCEPTED,
+        REJECTED,
+        CRASHED
+    }
+
+    static class Implementation {
+        private final String name;
+        private final Supplier<Predicate<String>> parserFactory;
+
+        /**
+         * @param parserFactory creates the parser used by one thread, so stateful parsers are not shared
+         */
+        Implementation(String name, Supplier<Predicate<String>> parserFactory) {
+            this.name = name;
+            this.parserFactory = parserFactory;
+        }
+
+        String getName() {
+            return name;
+        }
+    }
+
+    static class Report {
+        private final List<Implementation> implementations;
+        private final LongAdder inputCount = new LongAdder();
+        private final LongAdder[] elapsedNanos;
+        private final ConcurrentMap<String, LongAdder> disagreementCounts = new ConcurrentSkipListMap<>();
+        private final ConcurrentMap<String, Queue<String>> disagreementSamples = new ConcurrentHashMap<>();
+
+        private Report(List<Implementation> implementations) {
+            this.implementations = implementations;
+            this.elapsedNanos = new LongAdder[implementations.size()];
+            Arrays.setAll(elapsedNanos, i -> new LongAdder());
+        }
+
+        private void addDisagreement(String disagreementClass, String expression) {
+            disagreementCounts.computeIfAbsent(disagreementClass, key -> new LongAdder()).increment();
+            Queue<String> samples = disagreementSamples.computeIfAbsent(disagreementClass, key -> new ConcurrentLinkedQueue<>());
+            if (samples.size() < MAX_SAMPLES_PER_CLASS) {
+                samples.add(expression);
+            }
+        }
+
+        long getInputCount() {
+            return inputCount.sum();
+        }
+
+        Map<String, Long> getDisagreementCounts() {
+            Map<String, Long> counts = new TreeMap<>();
+            disagreementCounts.forEach((disagreementClass, count) -> counts.put(disagreementClass, count.sum()));
+            return counts;
+        }
+
+        /**
+         * Inputs per second of the time spent inside the implementation, summed over all threads.
+         */
+        double getThroughput(String implementationName) {
+            for (int i = 0; i < implementations.size(); i++) {
+                if (implementations.get(i).name.equals(implementationName)) {
+                    return getInputCount() * 1e9 / Math.max(1, elapsedNanos[i].sum());
+                }
+            }
+            throw new IllegalArgumentException("Unknown implementation " + implementationName);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Inputs: ").append(getInputCount()).append(System.lineSeparator());
+            for (Implementation implementation : implementations) {
+                sb.append(String.format("  %-12s %,.0f inputs/s per thread%n", implementation.name,
+                        getThroughput(implementation.name)));
+            }
+            getDisagreementCounts().forEach((disagreementClass, count) -> {
+                sb.append(count).append(" x ").append(disagreementClass).append(System.lineSeparator());
+                disagreementSamples.get(disagreementClass)
+                        .forEach(sample -> sb.append("    ").append(sample).append(System.lineSeparator()));
+            });
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package ru.backendbyjava;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class DifferentialParserTest {
+    private static final String FULL_PARSER = "full";
+    private static final String FAST_VALIDATION = "fast";
+    private static final String GENERATED_PARSER = "generated";
+
+    @Test
+    void testParserImplementationsAgree() throws InterruptedException {
+        long inputCount = Long.getLong("differential.inputs", 50_000);
+        int threadCount = Integer.getInteger("differential.threads", Math.max(4, Runtime.getRuntime().availableProcessors()));
+        long seed = Long.getLong("differential.seed", 20251210L);
+
+        DifferentialParserRunner runner = new DifferentialParserRunner(List.of(
+                new DifferentialParserRunner.Implementation(FULL_PARSER,
+                        () -> new ParsingArtificialLanguage()::checkExpression),
+                new DifferentialParserRunner.Implementation(FAST_VALIDATION,
+                        () -> new ParsingArtificialLanguage()::isValidExpression),
+                new DifferentialParserRunner.Implementation(GENERATED_PARSER,
+                        () -> ru.backendbyjava.generated.ParsingArtificialLanguage::checkExpression)));
+        DifferentialParserRunner.Report report = runner.run(inputCount, threadCount, seed);
+        if (System.getProperty("differential.inputs") != null) {
+            System.out.println(report);
+        }
+
+        Assertions.assertEquals(inputCount, report.getInputCount());
+        for (Map.Entry<String, Long> disagreement : report.getDisagreementCounts().entrySet()) {
+            String disagreementClass = disagreement.getKey();
+            Assertions.assertFalse(disagreementClass.contains(FULL_PARSER + "=" + DifferentialParserRunner.Outcome.CRASHED)
+                    || disagreementClass.contains(FAST_VALIDATION + "=" + DifferentialParserRunner.Outcome.CRASHED)
+                    || disagreementClass.endsWith(" " + FULL_PARSER)
+                    || disagreementClass.endsWith(" " + FAST_VALIDATION),
+                    () -> "Unexpected " + disagreement + System.lineSeparator() + report);
+            // Both hand-written implementations must share the outcome, only the generated parser may differ
+            Assertions.assertTrue(disagreementClass.startsWith("NON_DETERMINISTIC")
+                    || disagreementClass.startsWith(FULL_PARSER + "=ACCEPTED, " + FAST_VALIDATION + "=ACCEPTED")
+                    || disagreementClass.startsWith(FULL_PARSER + "=REJECTED, " + FAST_VALIDATION + "=REJECTED"),
+                    () -> "Hand-written implementations disagree: " + disagreement + System.lineSeparator() + report);
+        }
+        // The generated parser has no >= and <= and expects dates as yyyy-MM-dd
+        Assertions.assertTrue(report.getDisagreementCounts().containsKey(
+                FULL_PARSER + "=ACCEPTED, " + FAST_VALIDATION + "=ACCEPTED, " + GENERATED_PARSER + "=REJECTED"),
+                report::toString);
+        // It also accepts broken quoting and repeated logical operators
+        Assertions.assertTrue(report.getDisagreementCounts().containsKey(
+                FULL_PARSER + "=REJECTED, " + FAST_VALIDATION + "=REJECTED, " + GENERATED_PARSER + "=ACCEPTED"),
+                report::toString);
+        Assertions.assertTrue(report.getThroughput(FAST_VALIDATION) > 0);
+    }
+
+    @Test
+    void testCrashesAreClassified() throws InterruptedException {
+        DifferentialParserRunner runner = new DifferentialParserRunner(List.of(
+                new DifferentialParserRunner.Implementation(FULL_PARSER,
+                        () -> new ParsingArtificialLanguage()::checkExpression),
+                new DifferentialParserRunner.Implementation("recursive", () -> expression -> {
+                    if (expression.contains("(")) {
+                        throw new StackOverflowError();
+                    }
+                    if (expression.contains("OR")) {
+                        throw new AssertionError();
+                    }
+                    return new ParsingArtificialLanguage().isValidExpression(expression);
+                })));
+        DifferentialParserRunner.Report report = runner.run(2_000, 2, 20251211L);
+
+        Assertions.assertEquals(2_000, report.getInputCount());
+        Assertions.assertTrue(report.getDisagreementCounts().keySet().stream()
+                .anyMatch(disagreementClass -> disagreementClass.endsWith("recursive=CRASHED")), report::toString);
+    }
+}
@@ -0,0 +1,139 @@
+package ru.backendbyjava;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Grammar-based generator of filter expressions: well-formed expressions built from the field, operation and
+ * logical operator vocabulary, and invalid ones derived from them by token-level mutations.
+ */
+class ExpressionGenerator {
+    private static final String[] FIELDS = {"TITLE", "NAME", "WEIGHT", "POSTDATE"};
+    private static final String[] OPERATIONS = {">", "<", "=", ">=", "<=", "LIKE"};
+    private static final String[] LOGICAL_OPERATIONS = {"AND", "OR"};
+    private static final String[] STRING_VALUES = {"'123%'", "'12 3%'", "'abc'", "'A_C'", "''", "'%'", "'x y z'",
+            "'it''s'", "'a(b'", "'a)b'", "'a>b'", "'a=b'", "'AND'", "'TITLE'"};
+    private static final String[] BROKEN_STRING_VALUES = {"abc", "'abc", "abc'", "' abc'", "'a'b", "'", "'a'(b'",
+            "'a'>=b'"};
+    private static final String[] DATE_VALUES = {"'01.12.2025 12:00'", "'31.12.1999 23:59'", "'29.02.2024 00:00'",
+            "'31.02.2025 10:00'", "'01.01.2025 24:00'"};
+    private static final String[] BROKEN_DATE_VALUES = {"'2025-12-01'", "'01.12.2025'", "'32.01.2025 10:00'",
+            "'01.13.2025 10:00'", "'01.01.2025 24:01'", "'1.01.2025 10:00'", "'01.01.0000 10:00'", "01.12.2025 12:00",
+            "'01.12.2025 12:60'", "2025-12-01", "'01.12.2025  12:00'"};
+    private static final String[] INTEGER_VALUES = {"5", "9", "0", "-7", "+3", "2147483647", "-2147483648", "0010"};
+    private static final String[] BROKEN_INTEGER_VALUES = {"5.5", "2147483648", "-2147483649", "five", "'5'", "-", "5a"};
+    private static final String[] SEPARATORS = {" ", " ", " ", " ", "\t", "\n", "\r\n"};
+
+    private final Random random;
+
+    ExpressionGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    String nextExpression() {
+        List<String> tokens = new ArrayList<>();
+        appendDisjunction(tokens, random.nextInt(4));
+        if (random.nextInt(3) == 0) {
+            mutate(tokens);
+        }
+        return join(tokens);
+    }
+
+    private void appendDisjunction(List<String> tokens, int depth) {
+        int terms = 1 + random.nextInt(3);
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) {
+                tokens.add(pick(LOGICAL_OPERATIONS));
+            }
+            if (depth > 0 && random.nextInt(3) == 0) {
+                tokens.add("(");
+                appendDisjunction(tokens, depth - 1);
+                tokens.add(")");
+            } else {
+                appendComparison(tokens);
+            }
+        }
+    }
+
+    private void appendComparison(List<String> tokens) {
+        String field = pick(FIELDS);
+        tokens.add(randomCase(field));
+        boolean brokenValue = random.nextInt(10) == 0;
+        switch (field) {
+            case "WEIGHT":
+                tokens.add(random.nextInt(10) == 0 ? "LIKE" : pick(OPERATIONS, 5));
+                tokens.add(brokenValue ? pick(BROKEN_INTEGER_VALUES) : pick(INTEGER_VALUES));
+                break;
+            case "POSTDATE":
+                tokens.add(random.nextInt(10) == 0 ? "LIKE" : pick(OPERATIONS, 5));
+                tokens.add(brokenValue ? pick(BROKEN_DATE_VALUES) : pick(DATE_VALUES));
+                break;
+            default:
+                tokens.add(randomCase(pick(OPERATIONS)));
+                tokens.add(brokenValue ? pick(BROKEN_STRING_VALUES) : pick(STRING_VALUES));
+        }
+    }
+
+    private void mutate(List<String> tokens) {
+        int index = random.nextInt(tokens.size());
+        switch (random.nextInt(5)) {
+            case 0:
+                tokens.remove(index);
+                break;
+            case 1:
+                tokens.add(index, tokens.get(index));
+                break;
+            case 2:
+                if (index + 1 < tokens.size()) {
+                    tokens.set(index, tokens.set(index + 1, tokens.get(index)));
+                }
+                break;
+            case 3:
+                tokens.add(index, random.nextBoolean() ? "(" : ")");
+                break;
+            default:
+                tokens.add(index, pick(new String[]{pick(FIELDS), pick(OPERATIONS), pick(LOGICAL_OPERATIONS),
+                        pick(STRING_VALUES), pick(INTEGER_VALUES)}));
+        }
+    }
+
+    private String join(List<String> tokens) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (i > 0) {
+                boolean glued = isSelfDelimiting(token) || isSelfDelimiting(tokens.get(i - 1));
+                int spaces = glued && random.nextInt(3) == 0 ? 0 : random.nextInt(8) == 0 ? 2 : 1;
+                for (int j = 0; j < spaces; j++) {
+                    sb.append(pick(SEPARATORS));
+                }
+            }
+            sb.append(token);
+        }
+        return sb.toString();
+    }
+
+    private static boolean isSelfDelimiting(String token) {
+        return token.equals("(") || token.equals(")") || token.equals(">=") || token.equals("<=");
+    }
+
+    private String randomCase(String word) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return word.toLowerCase();
+            case 1:
+                return word.charAt(0) + word.substring(1).toLowerCase();
+            default:
+                return word;
+        }
+    }
+
+    private String pick(String[] values) {
+        return pick(values, values.length);
+    }
+
+    private String pick(String[] values, int bound) {
+        return values[random.nextInt(bound)];
+    }
+}
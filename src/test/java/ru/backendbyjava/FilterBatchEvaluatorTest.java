@@ -0,0 +1,130 @@
+package ru.backendbyjava;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+public class FilterBatchEvaluatorTest {
+    private static final FilterBatchEvaluator.Snapshot SNAPSHOT = new FilterBatchEvaluator.Snapshot(1, List.of(
+            Map.of("TITLE", "123ABC", "NAME", "FIRST", "WEIGHT", 3, "POSTDATE", LocalDateTime.of(2025, 12, 1, 10, 0)),
+            Map.of("TITLE", "456", "NAME", "SECOND", "WEIGHT", 7, "POSTDATE", LocalDateTime.of(2025, 12, 1, 12, 0)),
+            Map.of("TITLE", "1234", "NAME", "THIRD", "WEIGHT", 12, "POSTDATE", LocalDateTime.of(2025, 12, 2, 9, 30))
+    ));
+
+    @Test
+    void testEvaluateFilters() {
+        FilterBatchEvaluator evaluator = new FilterBatchEvaluator();
+
+        Assertions.assertEquals(bits(0, 2), evaluator.evaluate(SNAPSHOT, "TITLE LIKE '123%'"));
+        Assertions.assertEquals(bits(1, 2), evaluator.evaluate(SNAPSHOT, "WEIGHT > 5"));
+        Assertions.assertEquals(bits(0, 1, 2), evaluator.evaluate(SNAPSHOT, "TITLE LIKE '123%' OR WEIGHT > 5 AND weight  < 9"));
+        Assertions.assertEquals(bits(1, 2), evaluator.evaluate(SNAPSHOT, "POSTDATE >= '01.12.2025 12:00'"));
+        Assertions.assertEquals(bits(2), evaluator.evaluate(SNAPSHOT, "TITLE LIKE '12_4' AND (WEIGHT >= 5 AND weight  <= 12)"));
+        Assertions.assertEquals(bits(0, 1, 2), evaluator.evaluate(SNAPSHOT, ""));
+        Assertions.assertThrows(ParsingArtificialLanguage.IncorrectExpressionException.class,
+                () -> evaluator.evaluate(SNAPSHOT, "   "));
+    }
+
+    @Test
+    void testSharedSubexpressionsAreEvaluatedOnce() {
+        FilterBatchEvaluator evaluator = new FilterBatchEvaluator();
+
+        Map<String, BitSet> results = evaluator.evaluateBatch(SNAPSHOT, List.of(
+                "WEIGHT > 5 AND TITLE LIKE '123%'",
+                "TITLE LIKE '123%' AND WEIGHT > 5",
+                "POSTDATE >= '01.12.2025 12:00' OR (WEIGHT > 5 AND TITLE LIKE '123%')",
+                "WEIGHT > 05"
+        ));
+
+        Assertions.assertEquals(bits(2), results.get("WEIGHT > 5 AND TITLE LIKE '123%'"));
+        Assertions.assertEquals(bits(2), results.get("TITLE LIKE '123%' AND WEIGHT > 5"));
+        Assertions.assertEquals(bits(1, 2), results.get("POSTDATE >= '01.12.2025 12:00' OR (WEIGHT > 5 AND TITLE LIKE '123%')"));
+        Assertions.assertEquals(bits(1, 2), results.get("WEIGHT > 05"));
+        Assertions.assertEquals(5, evaluator.getEvaluatedNodeCount());
+
+        evaluator.evaluateBatch(SNAPSHOT, List.of("TITLE LIKE '123%' AND WEIGHT > 5"));
+        Assertions.assertEquals(5, evaluator.getEvaluatedNodeCount());
+
+        FilterBatchEvaluator.Snapshot nextSnapshot = new FilterBatchEvaluator.Snapshot(2, SNAPSHOT.getRows());
+        evaluator.evaluateBatch(nextSnapshot, List.of("TITLE LIKE '123%' AND WEIGHT > 5"));
+        Assertions.assertEquals(8, evaluator.getEvaluatedNodeCount());
+    }
+
+    @Test
+    void testStaleSnapshotDoesNotEvictCurrentResults() {
+        FilterBatchEvaluator evaluator = new FilterBatchEvaluator();
+        FilterBatchEvaluator.Snapshot staleSnapshot = new FilterBatchEvaluator.Snapshot(1, SNAPSHOT.getRows());
+        FilterBatchEvaluator.Snapshot currentSnapshot = new FilterBatchEvaluator.Snapshot(2, SNAPSHOT.getRows());
+
+        evaluator.evaluate(currentSnapshot, "WEIGHT > 5");
+        Assertions.assertEquals(1, evaluator.getEvaluatedNodeCount());
+
+        Assertions.assertEquals(bits(1, 2), evaluator.evaluate(staleSnapshot, "WEIGHT > 5"));
+        Assertions.assertEquals(2, evaluator.getEvaluatedNodeCount());
+        Assertions.assertEquals(bits(1, 2), evaluator.evaluate(staleSnapshot, "WEIGHT > 5"));
+        Assertions.assertEquals(3, evaluator.getEvaluatedNodeCount());
+
+        evaluator.evaluate(currentSnapshot, "WEIGHT > 5");
+        Assertions.assertEquals(3, evaluator.getEvaluatedNodeCount());
+    }
+
+    @Test
+    void testQuotedValuesDoNotShareCanonicalKey() {
+        FilterBatchEvaluator evaluator = new FilterBatchEvaluator();
+        FilterBatchEvaluator.Snapshot snapshot = new FilterBatchEvaluator.Snapshot(1, List.of(
+                Map.of("TITLE", "a", "NAME", "FIRST", "WEIGHT", 3, "POSTDATE", LocalDateTime.of(2025, 12, 1, 10, 0))));
+
+        Map<String, BitSet> results = evaluator.evaluateBatch(snapshot, List.of(
+                "NAME = 'b' OR TITLE = 'a', TITLE = 'c'",
+                "NAME = 'b' OR TITLE = 'a' OR TITLE = 'c'"
+        ));
+
+        Assertions.assertEquals(bits(), results.get("NAME = 'b' OR TITLE = 'a', TITLE = 'c'"));
+        Assertions.assertEquals(bits(0), results.get("NAME = 'b' OR TITLE = 'a' OR TITLE = 'c'"));
+        Assertions.assertNotEquals(ExpressionTree.parse("NAME = 'b' OR TITLE = 'a', TITLE = 'c'").getRoot(),
+                ExpressionTree.parse("NAME = 'b' OR TITLE = 'a' OR TITLE = 'c'").getRoot());
+    }
+
+    @Test
+    void testCacheIsMemoryBounded() {
+        FilterBatchEvaluator evaluator = new FilterBatchEvaluator(300);
+
+        for (int i = 0; i < 100; i++) {
+            evaluator.evaluate(SNAPSHOT, "WEIGHT > " + i);
+        }
+
+        Assertions.assertTrue(evaluator.getCachedBytes() <= 300);
+        Assertions.assertEquals(bits(), evaluator.evaluate(SNAPSHOT, "WEIGHT > 50"));
+
+        FilterBatchEvaluator uncachedEvaluator = new FilterBatchEvaluator(1);
+        Map<String, BitSet> results = uncachedEvaluator.evaluateBatch(SNAPSHOT, List.of(
+                "WEIGHT > 5 AND TITLE LIKE '123%'",
+                "TITLE LIKE '123%' OR WEIGHT > 5"
+        ));
+        Assertions.assertEquals(bits(2), results.get("WEIGHT > 5 AND TITLE LIKE '123%'"));
+        Assertions.assertEquals(bits(0, 1, 2), results.get("TITLE LIKE '123%' OR WEIGHT > 5"));
+        Assertions.assertEquals(0, uncachedEvaluator.getCachedBytes());
+        Assertions.assertEquals(6, uncachedEvaluator.getEvaluatedNodeCount());
+    }
+
+    @Test
+    void testLikePattern() {
+        Assertions.assertTrue(FilterBatchEvaluator.matchesLikePattern("12 3 ABC", "12 3%"));
+        Assertions.assertTrue(FilterBatchEvaluator.matchesLikePattern("ABC", "%B%"));
+        Assertions.assertTrue(FilterBatchEvaluator.matchesLikePattern("ABC", "A_C"));
+        Assertions.assertFalse(FilterBatchEvaluator.matchesLikePattern("ABC", "A_"));
+        Assertions.assertFalse(FilterBatchEvaluator.matchesLikePattern("ABC", "%D"));
+    }
+
+    private static BitSet bits(int... indexes) {
+        BitSet bitSet = new BitSet();
+        for (int index : indexes) {
+            bitSet.set(index);
+        }
+        return bitSet;
+    }
+}
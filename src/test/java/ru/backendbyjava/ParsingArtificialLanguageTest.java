@@ -3,6 +3,14 @@ package ru.backendbyjava;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+
 public class ParsingArtificialLanguageTest {
     @Test
     void testPositiveDifferentCases() {
@@ -41,5 +49,217 @@ public class ParsingArtificialLanguageTest {
 
         Assertions.assertThrows(ParsingArtificialLanguage.IncorrectExpressionException.class,
                 () -> parsingArtificialLanguage.checkExpression("TITLE LIKE '123%' AND (POSTDATE = '01.12.2025 12:00' AND)"));
+
+        Assertions.assertThrows(ParsingArtificialLanguage.IncorrectExpressionException.class,
+                () -> parsingArtificialLanguage.checkExpression("TITLE LIKE '123%' AND (WEIGHT > 5"));
+
+        Assertions.assertThrows(ParsingArtificialLanguage.IncorrectExpressionException.class,
+                () -> parsingArtificialLanguage.checkExpression("TITLE LIKE '123%' AND (WEIGHT) > 5"));
+    }
+
+    @Test
+    void testBracketsAtStartOfExpression() {
+        ParsingArtificialLanguage parsingArtificialLanguage = new ParsingArtificialLanguage();
+
+        parsingArtificialLanguage.checkExpression("(WEIGHT > 5)");
+        parsingArtificialLanguage.checkExpression("((WEIGHT > 5 OR WEIGHT < 2)) AND TITLE LIKE '123%'");
+        parsingArtificialLanguage.checkExpression("TITLE LIKE '123%' AND ((WEIGHT > 5) OR (WEIGHT < 2))");
+    }
+
+    @Test
+    void testFastValidation() {
+        ParsingArtificialLanguage parsingArtificialLanguage = new ParsingArtificialLanguage();
+
+        Assertions.assertTrue(parsingArtificialLanguage.isValidExpression(""));
+        Assertions.assertTrue(parsingArtificialLanguage.isValidExpression("TITLE LIKE '123%'"));
+        Assertions.assertTrue(parsingArtificialLanguage.isValidExpression("TITLE LIKE '123%' OR WEIGHT > 5 AND weight  < 9"));
+        Assertions.assertTrue(parsingArtificialLanguage.isValidExpression("TITLE LIKE '123%' AND (WEIGHT >= 5 AND weight  <= 9 OR (WEIGHT > 10))"));
+        Assertions.assertTrue(parsingArtificialLanguage.isValidExpression("TITLE LIKE '12 3%' AND (WEIGHT > 5 AND weight  < 9 OR (WEIGHT = 10)) AND (POSTDATE = '01.12.2025 12:00'  )"));
+        Assertions.assertTrue(parsingArtificialLanguage.isValidExpression("(weight>=5)"));
+        Assertions.assertTrue(parsingArtificialLanguage.isValidExpression("WEIGHT\t>\t5\r\nAND\nTITLE LIKE '1'"));
+        Assertions.assertTrue(parsingArtificialLanguage.checkExpression("WEIGHT\t>\t5\r\nAND\nTITLE LIKE '1'"));
+
+        Assertions.assertFalse(parsingArtificialLanguage.isValidExpression("TITLE LIKE '123%' AND (WEIGHT > 5 AND weight  < 9))"));
+        Assertions.assertFalse(parsingArtificialLanguage.isValidExpression("TITLE LIKE '123%' AND (WEIGHT > 5 AND weight  < 9 OR (WEIGHT > 10)) AND ()"));
+        Assertions.assertFalse(parsingArtificialLanguage.isValidExpression("TITLE LIKE '123%' AND (WEIGHT >= 5 AND weight  <= 9 OR (WEIGHT > ))"));
+        Assertions.assertFalse(parsingArtificialLanguage.isValidExpression("TITLE LIKE '123%' AND (WEIGHT > 5 AND weight  < 9 OR (WEIGHT2 > 10))"));
+        Assertions.assertFalse(parsingArtificialLanguage.isValidExpression("TITLE LIKE '123%' AND (WEIGHT > 5 AND weight  < 9 OR (WEIGHT LIKE 10))"));
+        Assertions.assertFalse(parsingArtificialLanguage.isValidExpression("TITLE LIKE '123%' AND (POSTDATE = '01.12.2025 12:00' AND)"));
+        Assertions.assertFalse(parsingArtificialLanguage.isValidExpression("POSTDATE = '32.12.2025 12:00'"));
+        Assertions.assertFalse(parsingArtificialLanguage.isValidExpression("WEIGHT>5"));
+    }
+
+    @Test
+    void testFastValidationMatchesFullParser() {
+        ParsingArtificialLanguage parsingArtificialLanguage = new ParsingArtificialLanguage();
+        ExpressionGenerator generator = new ExpressionGenerator(20251203L);
+        int validCount = 0;
+
+        for (int i = 0; i < 100_000; i++) {
+            String expression = generator.nextExpression();
+            boolean expected = isAcceptedByFullParser(expression);
+            Assertions.assertEquals(expected, parsingArtificialLanguage.isValidExpression(expression), expression);
+            validCount += expected ? 1 : 0;
+        }
+
+        Assertions.assertTrue(validCount > 25_000 && validCount < 75_000, "Unbalanced corpus: " + validCount);
+    }
+
+    @Test
+    void testFastValidationDoesNotAllocate() {
+        ParsingArtificialLanguage parsingArtificialLanguage = new ParsingArtificialLanguage();
+        String expression = "TITLE LIKE '12 3%' AND (WEIGHT > 5 AND weight  < 9 OR (WEIGHT = 10)) AND (POSTDATE = '01.12.2025 12:00'  )";
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < 10_000; i++) {
+            parsingArtificialLanguage.isValidExpression(expression);
+        }
+
+        long allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 10_000; i++) {
+            parsingArtificialLanguage.isValidExpression(expression);
+        }
+        long allocated = threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        Assertions.assertTrue(allocated < 10_000, "Allocated " + allocated + " bytes");
+    }
+
+    @Test
+    void testTranslateExpression() {
+        ParsingArtificialLanguage parsingArtificialLanguage = new ParsingArtificialLanguage();
+
+        Assertions.assertEquals("ARTICLE.TITLE like 'Name 123%'",
+                parsingArtificialLanguage.translateExpression("title like 'Name 123%'"));
+        Assertions.assertEquals("ARTICLE.WEIGHT >= 5 AND (ARTICLE_POST_DATE = '2025-12-01 12:00:00' OR ARTICLE_POST_DATE < '2025-12-02 00:00:00')",
+                parsingArtificialLanguage.translateExpression("WEIGHT >= 5 AND (POSTDATE = '01.12.2025 12:00' OR POSTDATE < '02.12.2025 00:00')"));
+        Assertions.assertEquals("", parsingArtificialLanguage.translateExpression(""));
+    }
+
+    @Test
+    void testStreamingTranslation() {
+        ParsingArtificialLanguage parsingArtificialLanguage = new ParsingArtificialLanguage();
+        String expression = "name = '\u041f\u0440\u0438\u0432\u0435\u0442 \uD83D\uDE00' AND (POSTDATE >= '01.12.2025 12:00' OR weight < 9)";
+        String expectedSql = "ARTICLE.NAME = '\u041f\u0440\u0438\u0432\u0435\u0442 \uD83D\uDE00' AND (ARTICLE_POST_DATE >= '2025-12-01 12:00:00' OR ARTICLE.WEIGHT < 9)";
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM ARTICLE WHERE ");
+        parsingArtificialLanguage.translateExpression(expression, sql);
+        Assertions.assertEquals("SELECT * FROM ARTICLE WHERE " + expectedSql, sql.toString());
+        Assertions.assertEquals(expectedSql, parsingArtificialLanguage.translateExpression(expression));
+
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        buffer.put((byte) 1);
+        parsingArtificialLanguage.translateExpression(expression, buffer);
+        byte[] expectedBytes = expectedSql.getBytes(StandardCharsets.UTF_8);
+        Assertions.assertEquals(1 + expectedBytes.length, buffer.position());
+        Assertions.assertEquals(ByteBuffer.wrap(expectedBytes), buffer.flip().position(1));
+
+        ByteBuffer loneSurrogateBuffer = ByteBuffer.allocate(64);
+        parsingArtificialLanguage.translateExpression("TITLE = '\uD83D x \uDE00'", loneSurrogateBuffer);
+        Assertions.assertEquals(ByteBuffer.wrap("ARTICLE.TITLE = '\uD83D x \uDE00'".getBytes(StandardCharsets.UTF_8)),
+                loneSurrogateBuffer.flip());
+
+        ByteBuffer smallBuffer = ByteBuffer.allocate(expectedBytes.length - 1);
+        Assertions.assertThrows(BufferOverflowException.class,
+                () -> parsingArtificialLanguage.translateExpression(expression, smallBuffer));
+        Assertions.assertEquals(0, smallBuffer.position());
+
+        Appendable failingAppendable = new Appendable() {
+            @Override
+            public Appendable append(CharSequence csq) throws IOException {
+                throw new IOException("closed");
+            }
+
+            @Override
+            public Appendable append(CharSequence csq, int start, int end) throws IOException {
+                throw new IOException("closed");
+            }
+
+            @Override
+            public Appendable append(char c) throws IOException {
+                throw new IOException("closed");
+            }
+        };
+        Assertions.assertThrows(ParsingArtificialLanguage.TranslationToSqlException.class,
+                () -> parsingArtificialLanguage.translateExpression(expression, failingAppendable));
+    }
+
+    @Test
+    void testControlCharacters() {
+        ParsingArtificialLanguage parsingArtificialLanguage = new ParsingArtificialLanguage();
+
+        Assertions.assertEquals("ARTICLE.TITLE = 'a\tb'\nAND ARTICLE.WEIGHT > 5",
+                parsingArtificialLanguage.translateExpression("TITLE = 'a\tb'\nAND WEIGHT > 5"));
+        for (String expression : List.of("WEIGHT\0> 5", "WEIGHT > 5\0", "\u0001WEIGHT > 5", "TITLE = 'a\0b'",
+                "TITLE = 'a\u007f'", "WEIGHT > 5 \u000b AND WEIGHT < 9")) {
+            Assertions.assertFalse(parsingArtificialLanguage.isValidExpression(expression), expression);
+            Assertions.assertThrows(ParsingArtificialLanguage.IncorrectExpressionException.class,
+                    () -> parsingArtificialLanguage.translateExpression(expression));
+        }
+    }
+
+    @Test
+    void testParsingLimits() {
+        ParsingArtificialLanguage parsingArtificialLanguage = new ParsingArtificialLanguage(
+                new ParsingArtificialLanguage.ParsingLimits(60, 11, 2, 10));
+
+        parsingArtificialLanguage.checkExpression("((WEIGHT > 5)) AND TITLE = '12345678'");
+        Assertions.assertTrue(parsingArtificialLanguage.isValidExpression("((WEIGHT > 5)) AND TITLE = '12345678'"));
+
+        assertLimitExceeded(parsingArtificialLanguage, "WEIGHT > 5 AND WEIGHT > 6 AND WEIGHT > 7 AND WEIGHT > 8 AND WEIGHT > 9");
+        assertLimitExceeded(parsingArtificialLanguage, "WEIGHT > 5 AND WEIGHT > 6 OR (WEIGHT > 7)");
+        assertLimitExceeded(parsingArtificialLanguage, "(((WEIGHT > 5)))");
+        assertLimitExceeded(parsingArtificialLanguage, "TITLE = '123456789'");
+        assertLimitExceeded(parsingArtificialLanguage, "WEIGHT = 12345678901");
+        assertLimitExceeded(parsingArtificialLanguage, "TITLE = '123456789 AND WEIGHT > 5'");
+
+        Assertions.assertThrows(ParsingArtificialLanguage.IncorrectExpressionException.class,
+                () -> parsingArtificialLanguage.checkExpression("TITLE = '1234"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new ParsingArtificialLanguage.ParsingLimits(0, 1, 1, 1));
+    }
+
+    @Test
+    void testValidationAndTranslationTimeGrowsLinearly() {
+        ParsingArtificialLanguage parsingArtificialLanguage = new ParsingArtificialLanguage(
+                new ParsingArtificialLanguage.ParsingLimits(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE));
+        List<Function<Integer, String>> pathologicalInputs = List.of(
+                size -> "WEIGHT > 5 AND ".repeat(size) + "WEIGHT > 5",
+                size -> "(".repeat(size) + "WEIGHT > 5" + ")".repeat(size),
+                size -> "(POSTDATE = '01.12.2025 12:00') OR ".repeat(size) + "NAME LIKE 'A%'",
+                size -> "TITLE LIKE '" + "x ".repeat(size * 8) + "'"
+        );
+
+        for (Function<Integer, String> pathologicalInput : pathologicalInputs) {
+            long smallTime = measureBestTime(parsingArtificialLanguage, pathologicalInput.apply(2_000));
+            long largeTime = measureBestTime(parsingArtificialLanguage, pathologicalInput.apply(16_000));
+
+            Assertions.assertTrue(largeTime < 24 * smallTime,
+                    "8x larger input took " + largeTime + "ns against " + smallTime + "ns");
+        }
+    }
+
+    private static long measureBestTime(ParsingArtificialLanguage parsingArtificialLanguage, String expression) {
+        long bestTime = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            parsingArtificialLanguage.checkExpression(expression);
+            parsingArtificialLanguage.isValidExpression(expression);
+            parsingArtificialLanguage.translateExpression(expression);
+            bestTime = Math.min(bestTime, System.nanoTime() - start);
+        }
+        return bestTime;
+    }
+
+    private static void assertLimitExceeded(ParsingArtificialLanguage parsingArtificialLanguage, String expression) {
+        Assertions.assertThrows(ParsingArtificialLanguage.ExpressionLimitExceededException.class,
+                () -> parsingArtificialLanguage.checkExpression(expression));
+        Assertions.assertFalse(parsingArtificialLanguage.isValidExpression(expression));
+    }
+
+    private static boolean isAcceptedByFullParser(String expression) {
+        try {
+            return new ParsingArtificialLanguage().checkExpression(expression);
+        } catch (ParsingArtificialLanguage.IncorrectExpressionException e) {
+            return false;
+        }
     }
 }
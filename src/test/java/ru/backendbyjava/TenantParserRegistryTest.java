@@ -0,0 +1,88 @@
+package ru.backendbyjava;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import ru.backendbyjava.ParsingArtificialLanguage.ParsingLimits;
+import ru.backendbyjava.TenantParserContext.Budget;
+import ru.backendbyjava.TenantParserContext.TenantThrottledException;
+
+public class TenantParserRegistryTest {
+    @Test
+    void testTenantsShareLimitsAndLiterals() {
+        TenantParserRegistry registry = new TenantParserRegistry();
+        TenantParserContext first = registry.register("first", new ParsingLimits(1_000, 100, 4, 100), Budget.UNLIMITED);
+        TenantParserContext second = registry.register("second", new ParsingLimits(1_000, 100, 4, 100), Budget.UNLIMITED);
+
+        Assertions.assertSame(first.getLimits(), second.getLimits());
+        Assertions.assertSame(second, registry.getContext("second"));
+
+        ExpressionTree.Comparison firstComparison = (ExpressionTree.Comparison) first.parse(new String("NAME = 'abc'")).getRoot();
+        ExpressionTree.Comparison secondComparison = (ExpressionTree.Comparison) second.parse(new String("NAME = 'abc'")).getRoot();
+        Assertions.assertEquals("'abc'", secondComparison.getLiteral());
+        Assertions.assertSame(firstComparison.getLiteral(), secondComparison.getLiteral());
+        Assertions.assertSame(firstComparison.getValue(), secondComparison.getValue());
+        Assertions.assertSame(firstComparison.getCanonicalKey(), secondComparison.getCanonicalKey());
+
+        Assertions.assertEquals("ARTICLE.NAME = 'abc'", first.translateExpression("name = 'abc'"));
+        Assertions.assertTrue(second.checkExpression("WEIGHT > 5"));
+        Assertions.assertEquals(2, registry.getUsage().get("first").getRequestCount());
+        Assertions.assertSame(first.parse("WEIGHT > 5 OR NAME = 'abc'").getRoot().getCanonicalKey(),
+                second.parse("name = 'abc' or weight > 5").getRoot().getCanonicalKey());
+
+        registry.unregister("first");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> registry.getContext("first"));
+    }
+
+    @Test
+    void testLiteralPoolIsBounded() {
+        LiteralPool literalPool = new LiteralPool(8, 5);
+
+        String literal = literalPool.intern(new String("'a'"));
+        Assertions.assertSame(literal, literalPool.intern(new String("'a'")));
+        Assertions.assertNotSame(literalPool.intern(new String("'abcdef'")), literalPool.intern(new String("'abcdef'")));
+
+        for (int i = 0; i < 100; i++) {
+            literalPool.intern("'" + i + "'");
+        }
+        Assertions.assertTrue(literalPool.size() <= 8);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new LiteralPool(0, 5));
+    }
+
+    @Test
+    void testNoisyTenantIsThrottled() {
+        AtomicLong clock = new AtomicLong();
+        AtomicLong cpuClock = new AtomicLong();
+        TenantParserContext noisy = new TenantParserContext("noisy", ParsingLimits.DEFAULT,
+                new Budget(2_000, 1_000, Duration.ofSeconds(1)), new LiteralPool(), clock::get, () -> cpuClock.addAndGet(300));
+        TenantParserContext quiet = new TenantParserRegistry().register("quiet", ParsingLimits.DEFAULT, Budget.UNLIMITED);
+
+        Assertions.assertThrows(TenantThrottledException.class, () -> noisy.checkExpression("TITLE = '" + "x".repeat(1_000) + "'"));
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertTrue(noisy.checkExpression("WEIGHT > 5"));
+        }
+        Assertions.assertEquals(1_200, noisy.getUsage().getCpuNanos());
+        Assertions.assertThrows(TenantThrottledException.class, () -> noisy.checkExpression("WEIGHT > 5"));
+        Assertions.assertEquals(2, noisy.getUsage().getThrottledRequestCount());
+        Assertions.assertTrue(quiet.checkExpression("WEIGHT > 5"));
+
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        Assertions.assertTrue(noisy.checkExpression("WEIGHT > 5"));
+        Assertions.assertEquals(5, noisy.getUsage().getRequestCount());
+    }
+
+    @Test
+    void testInvalidExpressionIsChargedForTokensRead() {
+        TenantParserContext noisy = new TenantParserContext("noisy", ParsingLimits.DEFAULT,
+                new Budget(20_000, Long.MAX_VALUE, Duration.ofSeconds(1)), new LiteralPool(), () -> 0, () -> 0);
+        String expression = "WEIGHT > 5 AND ".repeat(100) + "AND";
+
+        Assertions.assertThrows(ParsingArtificialLanguage.IncorrectExpressionException.class,
+                () -> noisy.checkExpression(expression));
+        Assertions.assertTrue(noisy.getUsage().getBytes() >= 48L * 401, () -> "Charged " + noisy.getUsage().getBytes());
+        Assertions.assertThrows(TenantThrottledException.class, () -> noisy.checkExpression(expression));
+    }
+}
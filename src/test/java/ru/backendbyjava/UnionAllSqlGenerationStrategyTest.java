@@ -0,0 +1,55 @@
+package ru.backendbyjava;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class UnionAllSqlGenerationStrategyTest {
+    @Test
+    void testDisjunctionIsSplitIntoUnionAllBranches() {
+        ParsingArtificialLanguage parsingArtificialLanguage = new ParsingArtificialLanguage();
+        UnionAllSqlGenerationStrategy strategy = new UnionAllSqlGenerationStrategy();
+
+        Assertions.assertEquals("SELECT * FROM ARTICLE WHERE ARTICLE.TITLE LIKE '123%'",
+                parsingArtificialLanguage.translateExpression("TITLE LIKE '123%'", strategy));
+
+        Assertions.assertEquals("SELECT * FROM ARTICLE WHERE ARTICLE.TITLE LIKE '123%'"
+                        + " UNION ALL SELECT * FROM ARTICLE WHERE ARTICLE.WEIGHT < 9 AND ARTICLE.WEIGHT > 5"
+                        + " AND (ARTICLE.TITLE LIKE '123%') IS NOT TRUE",
+                parsingArtificialLanguage.translateExpression("TITLE LIKE '123%' OR WEIGHT > 5 AND weight  < 9", strategy));
+
+        Assertions.assertEquals("SELECT * FROM ARTICLE WHERE ARTICLE.NAME = 'X' AND ARTICLE_POST_DATE >= '2025-12-01 12:00:00'"
+                        + " UNION ALL SELECT * FROM ARTICLE WHERE ARTICLE.NAME = 'X' AND ARTICLE.WEIGHT > 5"
+                        + " AND (ARTICLE.NAME = 'X' AND ARTICLE_POST_DATE >= '2025-12-01 12:00:00') IS NOT TRUE",
+                parsingArtificialLanguage.translateExpression("(WEIGHT > 5 OR POSTDATE >= '01.12.2025 12:00') AND NAME = 'X'", strategy));
+
+        Assertions.assertEquals("SELECT * FROM ARTICLE",
+                parsingArtificialLanguage.translateExpression("", strategy));
+        Assertions.assertThrows(ParsingArtificialLanguage.IncorrectExpressionException.class,
+                () -> parsingArtificialLanguage.translateExpression("   ", strategy));
+    }
+
+    @Test
+    void testPredicatesAreOrderedBySelectivity() {
+        ParsingArtificialLanguage parsingArtificialLanguage = new ParsingArtificialLanguage();
+        UnionAllSqlGenerationStrategy strategy = new UnionAllSqlGenerationStrategy();
+
+        Assertions.assertEquals("SELECT * FROM ARTICLE WHERE ARTICLE.NAME = 'X' AND ARTICLE.TITLE LIKE 'A%'"
+                        + " AND ARTICLE_POST_DATE < '2025-12-01 12:00:00' AND ARTICLE.WEIGHT > 5",
+                parsingArtificialLanguage.translateExpression(
+                        "WEIGHT > 5 AND POSTDATE < '01.12.2025 12:00' AND TITLE LIKE 'A%' AND NAME = 'X'", strategy));
+    }
+
+    @Test
+    void testBlowupLimitFallsBackToSingleSelect() {
+        ParsingArtificialLanguage parsingArtificialLanguage = new ParsingArtificialLanguage();
+        UnionAllSqlGenerationStrategy strategy = new UnionAllSqlGenerationStrategy("SELECT ID FROM ARTICLE", 3);
+
+        Assertions.assertEquals("SELECT ID FROM ARTICLE WHERE (ARTICLE.NAME = 'A' OR ARTICLE.NAME = 'B')"
+                        + " AND (ARTICLE.WEIGHT < 2 OR ARTICLE.WEIGHT > 5)",
+                parsingArtificialLanguage.translateExpression("(WEIGHT > 5 OR WEIGHT < 2) AND (NAME = 'A' OR NAME = 'B')", strategy));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new UnionAllSqlGenerationStrategy("SELECT 1", 0));
+        Assertions.assertThrows(ParsingArtificialLanguage.IncorrectExpressionException.class,
+                () -> parsingArtificialLanguage.translateExpression("WEIGHT > 5 OR", strategy));
+    }
+}